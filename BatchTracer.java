@@ -0,0 +1,360 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Traces a whole set of boards in one JVM, solving them concurrently, so
+ * JVM startup and JIT warmup are paid once per batch instead of once per board.
+ *
+ * Boards are read with the CircuitBoard parser and solved with
+ * CircuitTracer.search(), one task per board. Tasks run on virtual threads
+ * when the JVM provides them and on a pool of platform threads otherwise.
+ * Each task first reserves an estimate of the memory its board needs from a
+ * shared budget, so large boards wait for each other rather than exhausting
+ * the heap together. Console output is held per board so boards print whole,
+ * and counts against the same budget; a board whose output outgrows it waits
+ * for the console and prints the rest as it goes.
+ *
+ * @author CS221
+ */
+public class BatchTracer {
+	/** estimated bytes of parsing memory per byte of board file */
+	private static final int BYTES_PER_FILE_BYTE = 8;
+	/** estimated bytes of search memory per cell of a board, enough for the distance and step arrays of -d, -b and -w */
+	private static final int BYTES_PER_CELL = 32;
+	/** bytes of console output held per chunk, a whole number of KB */
+	private static final int OUTPUT_CHUNK = 64 * 1024;
+
+	private final String mode;
+	private final int threads;
+	private final File outputDir; //null to print results to System.out
+	private final Semaphore budget; //one permit per KB of the memory budget
+	private final int budgetKB;
+	private final TraceCache cache; //null to search every board
+	private final long limit; //most traces per board, 0 for all
+	private final ReentrantLock console = new ReentrantLock(true); //held while a board prints to System.out
+
+	/** launch the program
+	 * @param args optional leading options followed by two required arguments:
+	 *  options: -t N threads for parallel queue mode within each board (default 1)
+	 *           -m MB memory budget shared by boards being solved (default half the max heap)
+	 *           -o dir write each board's result to dir/name.out instead of the console
+	 *           -k dir keep results in dir and reuse them for boards solved before
+	 *           --limit N to write only the first N shortest traces of each board
+	 *  first arg: search mode, as for CircuitTracer
+	 *  second arg: directory of board files, or a manifest file listing one board file per line
+	 */
+	public static void main(String[] args) {
+		int threads = 1;
+		long budgetMB = Runtime.getRuntime().maxMemory() / 2 / (1024 * 1024);
+		File outputDir = null;
+		File cacheDir = null;
+		long limit = 0;
+		int next = 0; //index of the next arg to read
+		try {
+			while (args.length - next > 2) {
+				String option = args[next++];
+				if (option.equals("-t")) {
+					threads = Integer.parseInt(args[next++]);
+				} else if (option.equals("-m")) {
+					budgetMB = Long.parseLong(args[next++]);
+				} else if (option.equals("-o")) {
+					outputDir = new File(args[next++]);
+				} else if (option.equals("-k")) {
+					cacheDir = new File(args[next++]);
+				} else if (option.equals("--limit")) {
+					limit = Long.parseLong(args[next++]);
+				} else {
+					throw new IllegalArgumentException(option);
+				}
+			}
+		} catch (RuntimeException e) {
+			printUsage();
+			System.exit(1);
+		}
+		if (args.length - next != 2 || !CircuitTracer.isSearchMode(args[next]) || threads < 1 || budgetMB < 1 || limit < 0) {
+			printUsage();
+			System.exit(1);
+		}
+		try {
+			List<File> boards = listBoards(new File(args[next + 1]));
+			if (outputDir != null && !outputDir.isDirectory() && !outputDir.mkdirs()) {
+				throw new IOException("cannot create " + outputDir);
+			}
+			TraceCache cache = (cacheDir == null) ? null : new TraceCache(Runtime.getRuntime().maxMemory() / 8, cacheDir);
+			BatchTracer batch = new BatchTracer(args[next], threads, outputDir, (int) Math.min(budgetMB * 1024, Integer.MAX_VALUE), cache, limit);
+			batch.run(boards);
+			if (cache != null) {
+				System.out.println(cache);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/** Print instructions for running BatchTracer from the command line. */
+	private static void printUsage() {
+		System.out.println("Usage: $ java BatchTracer [-t threads] [-m budgetMB] [-o outputDir] [-k cacheDir] [--limit N] "
+							+ "stack(-s)/queue(-q)/distance layers(-d)/bidirectional(-b)/A*(-a)/parallel queue(-p)/jump points(-u)/weighted(-w) "
+							+ "directory/manifest");
+	}
+
+	/**
+	 * @param source directory whose files are all boards, or a manifest with one
+	 *  board path per line; relative paths are relative to the manifest, and
+	 *  blank lines and lines starting with '#' are skipped
+	 * @return board files in the order given, or sorted by name for a directory
+	 * @throws IOException if source cannot be read
+	 */
+	public static List<File> listBoards(File source) throws IOException {
+		List<File> boards = new ArrayList<File>();
+		if (source.isDirectory()) {
+			File[] files = source.listFiles();
+			Arrays.sort(files);
+			for (File f : files) {
+				if (f.isFile() && !f.getName().startsWith(".")) {
+					boards.add(f);
+				}
+			}
+			return boards;
+		}
+		BufferedReader manifest = new BufferedReader(new FileReader(source));
+		try {
+			String line;
+			while ((line = manifest.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				File f = new File(line);
+				boards.add(f.isAbsolute() ? f : new File(source.getAbsoluteFile().getParentFile(), line));
+			}
+		} finally {
+			manifest.close();
+		}
+		return boards;
+	}
+
+	/**
+	 * @param mode search mode flag, as for CircuitTracer
+	 * @param threads worker threads for parallel queue mode within each board
+	 * @param outputDir directory for result files, or null to print results to System.out
+	 * @param budgetKB memory budget shared by boards being solved, in KB
+	 * @param cache cache to answer repeated boards from, or null to search every board
+	 * @param limit most traces to write per board, or 0 for all of them
+	 */
+	public BatchTracer(String mode, int threads, File outputDir, int budgetKB, TraceCache cache, long limit) {
+		this.mode = mode;
+		this.threads = threads;
+		this.outputDir = outputDir;
+		this.budgetKB = budgetKB;
+		this.cache = cache;
+		this.limit = limit;
+		budget = new Semaphore(budgetKB, true);
+	}
+
+	/**
+	 * Solves every board, writes each result, then prints a throughput summary.
+	 * @param boards board files to solve
+	 * @throws InterruptedException if interrupted while waiting for boards to finish
+	 */
+	public void run(List<File> boards) throws InterruptedException {
+		ExecutorService pool = newExecutor();
+		long start = System.nanoTime();
+		List<Future<Long>> results = new ArrayList<Future<Long>>();
+		for (final File board : boards) {
+			results.add(pool.submit(() -> solve(board)));
+		}
+		pool.shutdown();
+		pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		long wall = System.nanoTime() - start;
+		long[] times = new long[results.size()]; //of solved boards only
+		int solved = 0;
+		for (Future<Long> result : results) {
+			try {
+				long time = result.get();
+				if (time >= 0) {
+					times[solved++] = time;
+				}
+			} catch (Exception e) {
+				//counted as failed
+			}
+		}
+		times = Arrays.copyOf(times, solved);
+		Arrays.sort(times);
+		System.out.printf("%d boards (%d failed) in %.3f s: %.1f boards/s, p50 %.3f ms, p99 %.3f ms%n",
+				results.size(), results.size() - solved, wall / 1e9, results.size() / (wall / 1e9),
+				percentile(times, 50) / 1e6, percentile(times, 99) / 1e6);
+	}
+
+	/** @return an executor with one virtual thread per task if the JVM has them, else a platform pool */
+	static ExecutorService newExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		}
+	}
+
+	/**
+	 * Reads, solves and writes the result for one board within the memory budget.
+	 * A board that cannot be read or whose search fails gets a message in its
+	 * result instead of traces.
+	 * @param file board file
+	 * @return nanoseconds spent reading, solving and writing, not counting waits
+	 *  for the budget or the console, or -1 if the board could not be solved
+	 * @throws Exception if interrupted or the result cannot be written
+	 */
+	private long solve(File file) throws Exception {
+		int reserve = reserveKB(file.length() * BYTES_PER_FILE_BYTE);
+		budget.acquire(reserve);
+		try {
+			long start = System.nanoTime();
+			long elapsed;
+			long waited = 0; //nanoseconds spent waiting for more of the budget
+			boolean solved = true;
+			BoardOutput buffered = (outputDir == null) ? new BoardOutput("== " + file.getPath()) : null;
+			PrintStream out = (buffered != null) ? new PrintStream(buffered)
+					: new PrintStream(new FileOutputStream(new File(outputDir, file.getName() + ".out")));
+			try {
+				CircuitBoard board = new CircuitBoard(file.getPath(), CircuitTracer.usesCosts(mode));
+				int searchReserve = reserveKB((long) board.numRows() * board.numCols() * BYTES_PER_CELL);
+				if (searchReserve > reserve) {
+					budget.release(reserve); //released first, so no task holds part of the budget while waiting for more
+					reserve = 0;
+					long wait = System.nanoTime();
+					budget.acquire(searchReserve);
+					waited += System.nanoTime() - wait;
+					reserve = searchReserve;
+				}
+				SearchStats stats = new SearchStats(mode, board);
+				Iterable<TraceState> traces = (cache != null) ? cache.search(board, mode, threads, stats, 0, limit)
+						: CircuitTracer.search(board, mode, threads, stats, 0, limit);
+				TraceEvents.Output output = TraceEvents.beginOutput();
+				long printed = CircuitTracer.printTraces(traces, out);
+				CircuitTracer.printTotal(mode, traces, printed, out);
+				TraceEvents.printed(output, board.numRows(), board.numCols(), printed);
+			} catch (FileNotFoundException e) {
+				out.println("File not found.");
+				solved = false;
+			} catch (InvalidFileFormatException e) {
+				out.println("Invalid file format: " + e.getMessage());
+				solved = false;
+			} catch (NumberFormatException e) {
+				out.println("Invalid number format.");
+				solved = false;
+			} catch (RuntimeException e) {
+				out.println("Failed: " + e);
+				solved = false;
+			} finally {
+				out.flush();
+				elapsed = System.nanoTime() - start - waited - ((buffered != null) ? buffered.waited : 0);
+				out.close(); //may wait for the console, so after the time is taken
+			}
+			return solved ? elapsed : -1;
+		} finally {
+			budget.release(reserve);
+		}
+	}
+
+	/** @return bytes in KB of the budget, at least 1 and at most the whole budget */
+	private int reserveKB(long bytes) {
+		return (int) Math.max(1, Math.min(budgetKB, bytes / 1024));
+	}
+
+	/**
+	 * Console output of one board. It is held in memory, in chunks counted
+	 * against the budget, and printed whole after a "==" line when the board
+	 * is done, so boards solved together do not interleave. If the budget has
+	 * no room for another chunk, the board waits for the console and prints
+	 * what it holds and then the rest as it is written, keeping the console
+	 * until it is done.
+	 */
+	private class BoardOutput extends OutputStream {
+		private final String header;
+		private List<byte[]> chunks = new ArrayList<byte[]>(); //null once printing straight through
+		private int used = OUTPUT_CHUNK; //bytes used in the last chunk
+		private boolean closed;
+		private long waited; //nanoseconds write() spent waiting for the console
+
+		/** @param header line printed before the output */
+		private BoardOutput(String header) {
+			this.header = header;
+		}
+
+		public void write(int b) throws IOException {
+			write(new byte[] {(byte) b}, 0, 1);
+		}
+
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (chunks != null && len > 0) {
+				if (used == OUTPUT_CHUNK) {
+					if (!budget.tryAcquire(OUTPUT_CHUNK / 1024)) {
+						long wait = System.nanoTime();
+						console.lock();
+						waited += System.nanoTime() - wait;
+						printChunks();
+						break;
+					}
+					chunks.add(new byte[OUTPUT_CHUNK]);
+					used = 0;
+				}
+				int n = Math.min(len, OUTPUT_CHUNK - used);
+				System.arraycopy(b, off, chunks.get(chunks.size() - 1), used, n);
+				used += n;
+				off += n;
+				len -= n;
+			}
+			if (chunks == null) {
+				System.out.write(b, off, len);
+			}
+		}
+
+		/** prints the header and every chunk held, then frees them; the console must be held */
+		private void printChunks() {
+			System.out.println(header);
+			for (int i = 0; i < chunks.size(); i++) {
+				System.out.write(chunks.get(i), 0, (i == chunks.size() - 1) ? used : OUTPUT_CHUNK);
+			}
+			budget.release(chunks.size() * (OUTPUT_CHUNK / 1024));
+			chunks = null;
+		}
+
+		public void close() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			if (chunks != null) {
+				console.lock();
+				printChunks();
+			}
+			System.out.flush();
+			console.unlock();
+		}
+	}
+
+	/** @return the p-th percentile of sorted, by nearest rank, or 0 if empty */
+	private static long percentile(long[] sorted, int p) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+		return sorted[Math.max(0, rank - 1)];
+	}
+}
@@ -0,0 +1,153 @@
+/**
+ * Finds all shortest traces on a CircuitBoard by growing BFS distance layers
+ * from both components at once, always extending the side with the smaller
+ * frontier, and stopping at the first level where the two sides touch.
+ *
+ * Once the sides meet, every shortest trace crosses a cut layer where both
+ * distances are known. Walking back from the cut along the start distances
+ * and forward along the end distances labels exactly the cells on shortest
+ * traces, which ShortestTraces then counts and enumerates. The traces found
+ * are the same set the queue search finds.
+ *
+ * @author CS221
+ */
+public class BidirectionalSearch {
+	private final CircuitBoard board;
+	private final DistanceField fromStart;
+	private final DistanceField fromEnd;
+	private final ShortestTraces traces;
+
+	/** Searches board from both components until they meet
+	 * @param board board to search
+	 */
+	public BidirectionalSearch(CircuitBoard board) {
+		this.board = board;
+		fromStart = new DistanceField(board, board.getStartingCell());
+		fromEnd = new DistanceField(board, board.getEndingCell());
+		int length = meet(fromStart, fromEnd);
+		while (length == 0 && !fromStart.isExhausted() && !fromEnd.isExhausted()) {
+			if (fromStart.size() - fromStart.frontierStart() <= fromEnd.size() - fromEnd.frontierStart()) {
+				fromStart.expandLevel();
+				length = meet(fromStart, fromEnd);
+			} else {
+				fromEnd.expandLevel();
+				length = meet(fromEnd, fromStart);
+			}
+		}
+		traces = label(length);
+	}
+
+	/**
+	 * Checks the deepest level of grown against the cells other has reached.
+	 * A full level is always checked so the minimum found is the true shortest length.
+	 * @param grown field whose deepest level was just reached
+	 * @param other field from the other component
+	 * @return shortest trace length through a cell both fields have reached, or 0 if none
+	 */
+	private int meet(DistanceField grown, DistanceField other) {
+		int cols = board.numCols();
+		int shortest = 0;
+		for (int i = grown.frontierStart(); i < grown.size(); i++) {
+			int row = grown.cellAt(i) / cols;
+			int col = grown.cellAt(i) % cols;
+			int d = other.distance(row, col);
+			if (d > 0) {
+				int length = grown.distance(row, col) + d - 1;
+				if (shortest == 0 || length < shortest) {
+					shortest = length;
+				}
+			}
+		}
+		return shortest;
+	}
+
+	/**
+	 * Labels every cell on a shortest trace with its step along the trace.
+	 * The cut is the deepest start level, or the last step if the start side
+	 * reaches past the end; every cell before the cut has a known start
+	 * distance and every cell after it has a known end distance.
+	 * @param length shortest trace length, 0 if there is none
+	 * @return the labeled shortest-trace DAG
+	 */
+	private ShortestTraces label(int length) {
+		int cols = board.numCols();
+		int[] step = new int[board.numRows() * cols];
+		if (length == 0) {
+			return new ShortestTraces(board, 0, step, new int[0]);
+		}
+		int cut = Math.min(fromStart.depth(), length);
+		int[] found = new int[fromStart.size() + fromEnd.size()]; //cells in the order they are labeled
+		int[] layerStart = new int[length + 2]; //position in found of each step's first cell
+		int[] layerEnd = new int[length + 2];
+		int size = 0;
+		for (int i = 0; i < fromStart.size(); i++) {
+			int row = fromStart.cellAt(i) / cols;
+			int col = fromStart.cellAt(i) % cols;
+			if (fromStart.distance(row, col) == cut && fromEnd.distance(row, col) == length + 1 - cut) {
+				step[fromStart.cellAt(i)] = cut;
+				found[size++] = fromStart.cellAt(i);
+			}
+		}
+		layerEnd[cut] = size;
+		for (int s = cut; s > 1; s--) { //back toward the start
+			layerStart[s - 1] = size;
+			for (int i = layerStart[s]; i < layerEnd[s]; i++) {
+				int row = found[i] / cols;
+				int col = found[i] % cols;
+				for (int d = 0; d < 4; d++) {
+					int r = row + DistanceField.DROW[d];
+					int c = col + DistanceField.DCOL[d];
+					if (fromStart.distance(r, c) == s - 1 && step[r * cols + c] == 0) {
+						step[r * cols + c] = s - 1;
+						found[size++] = r * cols + c;
+					}
+				}
+			}
+			layerEnd[s - 1] = size;
+		}
+		for (int s = cut; s < length; s++) { //on toward the end
+			layerStart[s + 1] = size;
+			for (int i = layerStart[s]; i < layerEnd[s]; i++) {
+				int row = found[i] / cols;
+				int col = found[i] % cols;
+				for (int d = 0; d < 4; d++) {
+					int r = row + DistanceField.DROW[d];
+					int c = col + DistanceField.DCOL[d];
+					if (fromEnd.distance(r, c) == length - s && step[r * cols + c] == 0) {
+						step[r * cols + c] = s + 1;
+						found[size++] = r * cols + c;
+					}
+				}
+			}
+			layerEnd[s + 1] = size;
+		}
+		int[] cells = new int[size];
+		int n = 0;
+		for (int s = 1; s <= length; s++) {
+			for (int i = layerStart[s]; i < layerEnd[s]; i++) {
+				cells[n++] = found[i];
+			}
+		}
+		return new ShortestTraces(board, length, step, cells);
+	}
+
+	/** @return all shortest traces found */
+	public ShortestTraces getTraces() {
+		return traces;
+	}
+
+	/** @return number of cells either side reached before they met */
+	public int cellsReached() {
+		return fromStart.size() + fromEnd.size();
+	}
+
+	/** @return number of cells whose neighbors either side looked at before they met */
+	public int cellsExpanded() {
+		return fromStart.frontierStart() + fromEnd.frontierStart();
+	}
+
+	/** @return most cells in any one level of either side */
+	public int widestLevel() {
+		return Math.max(fromStart.widestLevel(), fromEnd.widestLevel());
+	}
+}
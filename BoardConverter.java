@@ -0,0 +1,66 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * Converts boards between the text format and the binary format that
+ * CircuitBoard memory-maps without parsing. Either format is accepted as
+ * input, since the CircuitBoard file constructor reads both.
+ *
+ * @author CS221
+ */
+public class BoardConverter {
+
+	/** launch the program
+	 * @param args three required arguments:
+	 *  first arg: -b to write a binary board or -t to write a text board
+	 *  second arg: input board file, text or binary
+	 *  third arg: output file name
+	 */
+	public static void main(String[] args) {
+		if (args.length != 3 || !(args[0].equals("-b") || args[0].equals("-t"))) {
+			printUsage();
+			System.exit(1);
+		}
+		try {
+			CircuitBoard board = new CircuitBoard(args[1]);
+			if (args[0].equals("-b")) {
+				board.saveBinary(args[2]);
+			} else {
+				saveText(board, args[2]);
+			}
+		} catch (InvalidFileFormatException e) {
+			System.err.println("Invalid file format: " + e.getMessage());
+			System.exit(1);
+		} catch (IOException e) {
+			System.err.println("Cannot convert: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/** Print instructions for running BoardConverter from the command line. */
+	private static void printUsage() {
+		System.out.println("Usage: $ java BoardConverter binary(-b)/text(-t) input output");
+	}
+
+	/**
+	 * Writes board in the text format read by the CircuitBoard file constructor.
+	 * @param board board to write
+	 * @param filename file to create or replace
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void saveText(CircuitBoard board, String filename) throws IOException {
+		BufferedWriter out = new BufferedWriter(new FileWriter(filename));
+		try {
+			out.write(board.numRows() + " " + board.numCols() + "\n");
+			for (int row = 0; row < board.numRows(); row++) {
+				for (int col = 0; col < board.numCols(); col++) {
+					out.write(board.charAt(row, col));
+					out.write(col < board.numCols() - 1 ? ' ' : '\n');
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+}
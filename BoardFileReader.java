@@ -0,0 +1,308 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Byte-level reader for the text board format: a first line holding the
+ * number of rows and columns, then one line per row of single-character
+ * cells separated by whitespace.
+ *
+ * The file is memory-mapped through a FileChannel in large chunks, copied
+ * out in blocks to a byte array and scanned there, with a lookup table
+ * classifying each byte. Dimensions are checked as the cells stream past, in
+ * a single pass, and every problem is reported as an
+ * InvalidFileFormatException naming the line and column. Cells are handed
+ * over a row at a time to a RowHandler, or one at a time to a CellHandler;
+ * which cell characters are valid is left to the handler, which always sees
+ * the cells before a problem is reported after them.
+ *
+ * @author CS221
+ */
+public class BoardFileReader {
+	/** largest region of the file mapped at once */
+	private static final long CHUNK = 1L << 30;
+	/** bytes copied out of the mapped region at a time to be scanned */
+	private static final int BLOCK = 1 << 16;
+
+	/** byte classes */
+	private static final byte OTHER = 0, SPACE = 1, NEWLINE = 2, DIGIT = 3;
+	private static final byte[] CLASS = new byte[256];
+	static {
+		CLASS[' '] = CLASS['\t'] = CLASS['\r'] = CLASS['\f'] = SPACE;
+		CLASS['\n'] = NEWLINE;
+		for (char c = '0'; c <= '9'; c++) {
+			CLASS[c] = DIGIT;
+		}
+	}
+
+	/** Receives each cell of a board as it is read */
+	public interface CellHandler {
+		/**
+		 * @param row row of the cell
+		 * @param col column of the cell
+		 * @param c character in the cell
+		 * @param line line of the file the cell is on, counting from 1
+		 * @param column column of the file the cell is at, counting from 1
+		 * @throws InvalidFileFormatException if c is not valid at row, col
+		 */
+		public void cell(int row, int col, char c, int line, int column);
+	}
+
+	/** Receives each row of a board as it is read */
+	public interface RowHandler {
+		/**
+		 * @param row row the cells are in
+		 * @param cells character of each cell, as a byte, from column 0; reused for the next row
+		 * @param columns column of the file each cell is at, counting from 1; reused likewise
+		 * @param count number of cells in cells, numCols() unless a problem with the row is reported next
+		 * @param line line of the file the row is on, counting from 1
+		 * @throws InvalidFileFormatException if a cell is not valid
+		 */
+		public void row(int row, byte[] cells, int[] columns, int count, int line);
+	}
+
+	private final String filename;
+	private final FileChannel channel;
+	private final long fileSize;
+	private MappedByteBuffer buffer; //current chunk
+	private long mapped; //file position just past the current chunk
+	private int line = 1; //line of the last byte read
+	private int column; //column of the last byte read
+	private final int rows;
+	private final int cols;
+
+	/** Opens filename and reads its dimensions line
+	 * @param filename board file
+	 * @throws FileNotFoundException if the file does not exist or cannot be read
+	 * @throws InvalidFileFormatException if the dimensions line is malformed
+	 */
+	public BoardFileReader(String filename) throws FileNotFoundException {
+		this.filename = filename;
+		try {
+			channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+			fileSize = channel.size();
+		} catch (NoSuchFileException e) {
+			throw new FileNotFoundException(filename);
+		} catch (IOException e) {
+			throw new FileNotFoundException(filename + ": " + e.getMessage());
+		}
+		try {
+			rows = readDimension("number of rows");
+			cols = readDimension("number of columns");
+			int b = skipSpaces();
+			if (b >= 0 && CLASS[b] != NEWLINE) {
+				throw error("expected end of line after dimensions");
+			}
+			if ((long) rows * cols > Integer.MAX_VALUE) {
+				throw error("board of " + rows + "x" + cols + " is too large");
+			}
+		} catch (RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/** @return number of rows given on the first line */
+	public int numRows() {
+		return rows;
+	}
+
+	/** @return number of columns given on the first line */
+	public int numCols() {
+		return cols;
+	}
+
+	/**
+	 * Reads every cell, passing each to handler in row-major order, then closes the file.
+	 * @param handler receives each cell
+	 * @throws InvalidFileFormatException if a cell is more than one character,
+	 *  a row has the wrong number of cells, or there are the wrong number of rows
+	 * @throws UncheckedIOException if the file cannot be read
+	 */
+	public void readCells(final CellHandler handler) {
+		readRows(new RowHandler() {
+			public void row(int row, byte[] cells, int[] columns, int count, int line) {
+				for (int col = 0; col < count; col++) {
+					handler.cell(row, col, (char) (cells[col] & 0xFF), line, columns[col]);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Reads every row, passing each to handler in order, then closes the file.
+	 * @param handler receives each row
+	 * @throws InvalidFileFormatException if a cell is more than one character,
+	 *  a row has the wrong number of cells, or there are the wrong number of rows
+	 * @throws UncheckedIOException if the file cannot be read
+	 */
+	public void readRows(RowHandler handler) {
+		try {
+			byte[] block = new byte[BLOCK];
+			byte[] cells = new byte[cols];
+			int[] columns = new int[cols];
+			int row = 0;
+			int col = 0;
+			boolean inCell = false;
+			int line = 2;
+			int column = 0;
+			int n;
+			while ((n = nextBlock(block)) > 0) {
+				for (int i = 0; i < n; i++) {
+					int b = block[i] & 0xFF;
+					column++;
+					byte kind = CLASS[b];
+					if (kind == SPACE) {
+						inCell = false;
+					} else if (kind == NEWLINE) {
+						this.line = line;
+						this.column = column;
+						row = endRow(handler, cells, columns, row, col);
+						col = 0;
+						inCell = false;
+						line++;
+						column = 0;
+					} else if (inCell || row >= rows || col >= cols) {
+						this.line = line;
+						this.column = column;
+						if (row < rows) {
+							handler.row(row, cells, columns, col, line); //cells before the problem come first
+						}
+						if (inCell) {
+							throw error("cells must be single characters separated by whitespace");
+						}
+						throw error((row >= rows) ? "more than the " + rows + " rows given" : "more than the " + cols + " columns given");
+					} else {
+						cells[col] = (byte) b;
+						columns[col++] = column;
+						if (i + 1 < n && CLASS[block[i + 1] & 0xFF] == SPACE) {
+							i++; //the usual single space after a cell, taken with it
+							column++;
+						} else {
+							inCell = true;
+						}
+					}
+				}
+			}
+			this.line = line;
+			this.column = column;
+			row = endRow(handler, cells, columns, row, col);
+			if (row != rows) {
+				throw error("found " + row + " rows, expected " + rows);
+			}
+		} finally {
+			close();
+		}
+	}
+
+	/** passes a finished line to handler, checks it, and returns the number of rows read including it */
+	private int endRow(RowHandler handler, byte[] cells, int[] columns, int row, int col) {
+		if (col == 0) {
+			if (row < rows) {
+				throw error("blank line where row " + (row + 1) + " was expected");
+			}
+			return row; //trailing blank lines are fine
+		}
+		handler.row(row, cells, columns, col, line);
+		if (col != cols) {
+			throw error("found " + col + " cells in row " + (row + 1) + ", expected " + cols);
+		}
+		return row + 1;
+	}
+
+	/** reads a positive int from the dimensions line */
+	private int readDimension(String name) {
+		int b = skipSpaces();
+		if (b < 0 || CLASS[b] != DIGIT) {
+			throw error("expected " + name);
+		}
+		long value = 0;
+		while (b >= 0 && CLASS[b] == DIGIT) {
+			value = value * 10 + (b - '0');
+			if (value > Integer.MAX_VALUE) {
+				throw error(name + " is too large");
+			}
+			b = nextByte();
+		}
+		if (b >= 0 && CLASS[b] == OTHER) {
+			throw error("expected " + name);
+		}
+		if (value == 0) {
+			throw error(name + " must be positive");
+		}
+		if (b >= 0) {
+			unread();
+		}
+		return (int) value;
+	}
+
+	/** @return next byte that is not a space, or -1 at end of file */
+	private int skipSpaces() {
+		int b = nextByte();
+		while (b >= 0 && CLASS[b] == SPACE) {
+			b = nextByte();
+		}
+		return b;
+	}
+
+	/** @return next byte of the file as 0-255, or -1 at end of file */
+	private int nextByte() {
+		if (!hasMore()) {
+			return -1;
+		}
+		column++;
+		return buffer.get() & 0xFF;
+	}
+
+	/** @return number of bytes of the file copied into the start of block, 0 at end of file */
+	private int nextBlock(byte[] block) {
+		if (!hasMore()) {
+			return 0;
+		}
+		int n = Math.min(block.length, buffer.remaining());
+		buffer.get(block, 0, n);
+		return n;
+	}
+
+	/** @return true if bytes are left, mapping the next chunk once the current one is used up */
+	private boolean hasMore() {
+		if (buffer == null || !buffer.hasRemaining()) {
+			if (mapped >= fileSize) {
+				return false;
+			}
+			try {
+				long length = Math.min(CHUNK, fileSize - mapped);
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapped, length);
+				mapped += length;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return true;
+	}
+
+	/** steps back over the last byte read, which is always in the current chunk */
+	private void unread() {
+		if (buffer != null && buffer.position() > 0) {
+			buffer.position(buffer.position() - 1);
+			column--;
+		}
+	}
+
+	private InvalidFileFormatException error(String message) {
+		return new InvalidFileFormatException(filename + ": line " + line + ", column " + column + ": " + message);
+	}
+
+	private void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			//nothing left to read, so nothing lost
+		}
+	}
+}
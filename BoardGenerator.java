@@ -0,0 +1,233 @@
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+/**
+ * Writes random boards in the text format read by the CircuitBoard file
+ * constructor, for stress and scale testing. The same seed and options
+ * always write the same board.
+ *
+ * Boards are written a row at a time and only the current row is held in
+ * memory, so boards larger than the heap can be written. The layout is
+ * either random noise, each cell closed with a given chance, or a maze,
+ * carved with the sidewinder algorithm, which also works a row at a time.
+ * The starting component is in the top left corner and the ending component
+ * as far toward the bottom right as the layout allows.
+ *
+ * Two options shape the traces: solvable opens a staircase from start to
+ * end through a noise layout, since a maze always connects them; and paths
+ * replaces the top two rows with a band that has exactly that many shortest
+ * traces, all shorter than any trace that leaves the band.
+ *
+ * @author CS221
+ */
+public class BoardGenerator {
+	private static final byte OPEN = 'O';
+	private static final byte CLOSED = 'X';
+	private static final byte START = '1';
+	private static final byte END = '2';
+
+	private final int rows;
+	private final int cols;
+	private final long seed;
+	private final double density;
+	private final boolean maze;
+	private final boolean solvable;
+	private final int paths;
+
+	/** launch the program
+	 * @param args optional leading options followed by three required arguments:
+	 *  options: -seed N random seed (default 1)
+	 *           -density D chance each noise cell is 'X' (default 0.3)
+	 *           -maze to carve a maze instead of noise
+	 *           -solvable to guarantee a noise board has a trace
+	 *           -paths K to give the board exactly K shortest traces
+	 *  first arg: number of rows
+	 *  second arg: number of columns
+	 *  third arg: output file name
+	 */
+	public static void main(String[] args) {
+		long seed = 1;
+		double density = 0.3;
+		boolean maze = false;
+		boolean solvable = false;
+		int paths = 0;
+		int next = 0; //index of the next arg to read
+		try {
+			while (args.length - next > 3) {
+				String option = args[next++];
+				if (option.equals("-seed")) {
+					seed = Long.parseLong(args[next++]);
+				} else if (option.equals("-density")) {
+					density = Double.parseDouble(args[next++]);
+				} else if (option.equals("-maze")) {
+					maze = true;
+				} else if (option.equals("-solvable")) {
+					solvable = true;
+				} else if (option.equals("-paths")) {
+					paths = Integer.parseInt(args[next++]);
+				} else {
+					throw new IllegalArgumentException("unknown option " + option);
+				}
+			}
+			if (args.length - next != 3) {
+				throw new IllegalArgumentException("expected rows, columns and file name");
+			}
+			BoardGenerator generator = new BoardGenerator(Integer.parseInt(args[next]), Integer.parseInt(args[next + 1]),
+					seed, density, maze, solvable, paths);
+			generator.write(args[next + 2]);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			printUsage();
+			System.exit(1);
+		} catch (IOException e) {
+			System.err.println("Cannot write board: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/** Print instructions for running BoardGenerator from the command line. */
+	private static void printUsage() {
+		System.out.println("Usage: $ java BoardGenerator [-seed N] [-density D] [-maze] [-solvable] [-paths K] "
+							+ "rows cols file");
+	}
+
+	/**
+	 * @param rows number of rows
+	 * @param cols number of columns
+	 * @param seed random seed
+	 * @param density chance that each cell of a noise layout is 'X', 0 to 1; not used for a maze
+	 * @param maze true to carve a maze, false for noise
+	 * @param solvable true to guarantee a noise layout has a trace
+	 * @param paths number of shortest traces to build into the top two rows, or 0 for none
+	 * @throws IllegalArgumentException if an option is out of range or the board
+	 *  is too small for both components, or for paths
+	 */
+	public BoardGenerator(int rows, int cols, long seed, double density, boolean maze, boolean solvable, int paths) {
+		if (rows < 1 || cols < 1 || (long) rows * cols < 2) {
+			throw new IllegalArgumentException("board of " + rows + "x" + cols + " has no room for both components");
+		}
+		if (!(density >= 0 && density <= 1)) {
+			throw new IllegalArgumentException("density must be from 0 to 1: " + density);
+		}
+		if (paths < 0 || (paths > 0 && (rows < 2 || cols < paths + 2))) {
+			throw new IllegalArgumentException(paths + " paths need at least 2 rows and " + (paths + 2) + " columns");
+		}
+		if (maze && paths == 0 && rows < 3 && cols < 3) {
+			throw new IllegalArgumentException("maze of " + rows + "x" + cols + " has no room for both components");
+		}
+		this.rows = rows;
+		this.cols = cols;
+		this.seed = seed;
+		this.density = density;
+		this.maze = maze;
+		this.solvable = solvable;
+		this.paths = paths;
+	}
+
+	/**
+	 * Writes the board to a file.
+	 * @param filename file to create or replace
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(String filename) throws IOException {
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(filename), 1 << 16);
+		try {
+			write(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the board to out a row at a time.
+	 * @param out stream to write to, left open
+	 * @throws IOException if out cannot be written
+	 */
+	public void write(OutputStream out) throws IOException {
+		SplittableRandom random = new SplittableRandom(seed);
+		out.write((rows + " " + cols + "\n").getBytes(StandardCharsets.US_ASCII));
+		byte[] line = new byte[2 * cols];
+		for (int col = 0; col < cols - 1; col++) {
+			line[2 * col + 1] = ' ';
+		}
+		line[2 * cols - 1] = '\n';
+		int mazeCols = (cols + 1) / 2; //maze cells are at even rows and columns
+		boolean[] east = new boolean[mazeCols]; //passage east of each maze cell in the current maze row
+		boolean[] north = new boolean[mazeCols]; //passage north of each maze cell in the current maze row
+		int endRow = maze ? (rows - 1) / 2 * 2 : rows - 1;
+		int endCol = maze ? (cols - 1) / 2 * 2 : cols - 1;
+		int stairEnd = 0; //last column of the staircase in the previous row
+		for (int row = 0; row < rows; row++) {
+			if (maze) {
+				if (row % 2 == 1 && row + 1 < rows) {
+					carve(random, east, north);
+				}
+				mazeRow(line, row, east, north);
+			} else {
+				for (int col = 0; col < cols; col++) {
+					line[2 * col] = (random.nextDouble() < density) ? CLOSED : OPEN;
+				}
+			}
+			if (solvable && !maze) {
+				int stairStart = stairEnd;
+				stairEnd = (int) ((long) (row + 1) * (cols - 1) / rows);
+				for (int col = stairStart; col <= stairEnd; col++) {
+					line[2 * col] = OPEN;
+				}
+			}
+			if (paths > 0) {
+				if (row < 2) {
+					for (int col = 1; col <= paths; col++) {
+						line[2 * col] = OPEN;
+					}
+					line[0] = (row == 0) ? START : CLOSED;
+					line[2 * (paths + 1)] = (row == 0) ? CLOSED : END;
+				}
+			} else {
+				if (row == 0) {
+					line[0] = START;
+				}
+				if (row == endRow) {
+					line[2 * endCol] = END;
+				}
+			}
+			out.write(line);
+		}
+	}
+
+	/**
+	 * Sidewinder step: decides the passages of the next maze row. Runs of
+	 * cells are joined eastward at random, and each run gets one passage north
+	 * from a random cell in it.
+	 */
+	private void carve(SplittableRandom random, boolean[] east, boolean[] north) {
+		int runStart = 0;
+		for (int j = 0; j < east.length; j++) {
+			north[j] = false;
+			east[j] = j + 1 < east.length && random.nextBoolean();
+			if (!east[j]) {
+				north[runStart + random.nextInt(j - runStart + 1)] = true;
+				runStart = j + 1;
+			}
+		}
+	}
+
+	/** fills line with one row of the maze: the first row is a corridor, odd rows hold the passages north */
+	private void mazeRow(byte[] line, int row, boolean[] east, boolean[] north) {
+		for (int col = 0; col < cols; col++) {
+			boolean open;
+			if (row == 0) {
+				open = col % 2 == 0 || col + 1 < cols;
+			} else if (row % 2 == 1) {
+				open = row + 1 < rows && col % 2 == 0 && north[col / 2];
+			} else {
+				open = col % 2 == 0 || (col + 1 < cols && east[col / 2]);
+			}
+			line[2 * col] = open ? OPEN : CLOSED;
+		}
+	}
+}
@@ -0,0 +1,299 @@
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * All cheapest traces between the components of a CircuitBoard whose cells
+ * have costs, as read with its cost map. The cost of a trace is the sum of
+ * the costs of its cells.
+ *
+ * Cells are settled by Dijkstra's algorithm from each component in turn,
+ * over an IntBucketQueue, so every step is O(1) for the small integer costs
+ * a cost map holds; when every cell costs the same the buckets are visited
+ * in order like BFS levels. The search from the start stops once it has
+ * passed the cost of the cheapest trace, and the search from the end stops
+ * at that cost too. A cell then lies on some cheapest trace exactly when its
+ * cost from the start plus its cost from the end, less its own cost, is the
+ * cheapest trace cost. Like the shortest-trace DAG of ShortestTraces, those
+ * cells are enough to count the traces exactly and to walk them one at a
+ * time without ever holding more than one path.
+ *
+ * @author CS221
+ */
+public class CheapestTraces implements Iterable<TraceState> {
+	private final CircuitBoard board;
+	private final int cols;
+	private final int cost; //cost of the cheapest traces, 0 if there is none
+	private final int[] fromStart; //cost of the cheapest path from the start to each cell, its own cost included; 0 if not reached
+	private final int[] fromEnd; //the same from the end
+	private final int[] settled; //cells settled from the start, in nondecreasing cost order
+	private long stored; //cells stored by both searches
+	private int peakHeld; //most cells either search held at once
+	private BigInteger count; //computed on first call to count()
+	private long maxTraces = Long.MAX_VALUE; //most traces an iterator returns
+
+	/** Searches board, using its cost map
+	 * @param board board to search
+	 */
+	public CheapestTraces(CircuitBoard board) {
+		this.board = board;
+		cols = board.numCols();
+		fromStart = new int[board.numRows() * cols];
+		fromEnd = new int[board.numRows() * cols];
+		int[] order = new int[board.numRows() * cols];
+		int n = settle(board.getStartingCell(), board.getEndingCell(), fromStart, order, Integer.MAX_VALUE);
+		int cheapest = 0;
+		for (int i = 0; i < n && cheapest == 0; i++) {
+			if (isNeighbor(order[i], board.getEndingCell())) {
+				cheapest = fromStart[order[i]];
+			}
+		}
+		cost = cheapest;
+		settled = Arrays.copyOf(order, n);
+		if (cost > 0) {
+			settle(board.getEndingCell(), -1, fromEnd, order, cost);
+		}
+	}
+
+	private CheapestTraces(CheapestTraces traces) {
+		board = traces.board;
+		cols = traces.cols;
+		cost = traces.cost;
+		fromStart = traces.fromStart;
+		fromEnd = traces.fromEnd;
+		settled = traces.settled;
+		stored = traces.stored;
+		peakHeld = traces.peakHeld;
+		count = traces.count;
+	}
+
+	/**
+	 * Settles cells by Dijkstra's algorithm from the open neighbors of origin.
+	 * @param origin component to measure costs from
+	 * @param target component whose first settled neighbor sets the bound, or -1 for none
+	 * @param dist receives the cost of each cell reached
+	 * @param order receives each cell settled, in order
+	 * @param bound cost past which to stop
+	 * @return number of cells settled
+	 */
+	private int settle(int origin, int target, int[] dist, int[] order, int bound) {
+		IntBucketQueue open = new IntBucketQueue();
+		for (int d = 0; d < 4; d++) {
+			relax(open, dist, origin / cols + DistanceField.DROW[d], origin % cols + DistanceField.DCOL[d], 0);
+		}
+		int targetRow = (target >= 0) ? target / cols : -2; //-2 is next to no row
+		int targetCol = (target >= 0) ? target % cols : -2;
+		int n = 0;
+		while (!open.isEmpty()) {
+			int cell = open.retreive();
+			int c = dist[cell];
+			if (open.lastPriority() != c) {
+				continue; //stored again later at a lower cost, and already settled then
+			}
+			if (c > bound) {
+				break;
+			}
+			order[n++] = cell;
+			int row = cell / cols;
+			int col = cell % cols;
+			if (bound == Integer.MAX_VALUE && Math.abs(row - targetRow) + Math.abs(col - targetCol) == 1) {
+				bound = c; //settled cheapest first, so nothing cheaper reaches target
+			}
+			for (int d = 0; d < 4; d++) {
+				relax(open, dist, row + DistanceField.DROW[d], col + DistanceField.DCOL[d], c);
+			}
+		}
+		peakHeld = Math.max(peakHeld, open.peakSize());
+		return n;
+	}
+
+	/** stores row, col if it is open and reaching it through a path of cost costSoFar is the cheapest way found yet */
+	private void relax(IntBucketQueue open, int[] dist, int row, int col, int costSoFar) {
+		if (!board.isOpen(row, col)) {
+			return;
+		}
+		int cell = row * cols + col;
+		int c = costSoFar + board.cost(cell);
+		if (dist[cell] == 0 || c < dist[cell]) {
+			dist[cell] = c;
+			open.store(cell, c);
+			stored++;
+		}
+	}
+
+	/** @return packed index of the neighbor of cell in DistanceField direction d, or -1 if off the board */
+	private int neighbor(int cell, int d) {
+		int row = cell / cols + DistanceField.DROW[d];
+		int col = cell % cols + DistanceField.DCOL[d];
+		if (row < 0 || row >= board.numRows() || col < 0 || col >= cols) {
+			return -1;
+		}
+		return row * cols + col;
+	}
+
+	/** @return true if two packed cells are next to each other */
+	private boolean isNeighbor(int a, int b) {
+		return Math.abs(a / cols - b / cols) + Math.abs(a % cols - b % cols) == 1;
+	}
+
+	/** @return true if cell is on at least one cheapest trace */
+	private boolean onTrace(int cell) {
+		return cell >= 0 && fromStart[cell] > 0 && fromEnd[cell] > 0
+				&& fromStart[cell] + fromEnd[cell] - board.cost(cell) == cost;
+	}
+
+	/** @return true if a cheapest trace steps from cell to next */
+	private boolean isStep(int cell, int next) {
+		return onTrace(next) && fromStart[next] == fromStart[cell] + board.cost(next);
+	}
+
+	/** @return cost of the cheapest traces, or 0 if the components cannot be connected */
+	public int cheapestCost() {
+		return cost;
+	}
+
+	/** @return true if the components cannot be connected */
+	public boolean isEmpty() {
+		return cost == 0;
+	}
+
+	/** @return number of cells stored by both searches */
+	public long cellsStored() {
+		return stored;
+	}
+
+	/** @return number of cells settled from the start */
+	public int cellsSettled() {
+		return settled.length;
+	}
+
+	/** @return most cells either search held waiting to be settled at once */
+	public int widestFrontier() {
+		return peakHeld;
+	}
+
+	/** @return exact number of distinct cheapest traces */
+	public BigInteger count() {
+		if (count == null) {
+			int maxCost = 0; //no step between cells on a trace spans more cost layers than this
+			for (int cell : settled) {
+				if (onTrace(cell)) {
+					maxCost = Math.max(maxCost, board.cost(cell));
+				}
+			}
+			HashMap<Integer, BigInteger> ways = new HashMap<Integer, BigInteger>(); //counts of the layers a step may still reach back to
+			int oldest = 0; //position in settled of the oldest cell whose count may be held
+			BigInteger total = BigInteger.ZERO;
+			for (int cell : settled) {
+				if (!onTrace(cell)) {
+					continue;
+				}
+				while (fromStart[settled[oldest]] < fromStart[cell] - maxCost) {
+					ways.remove(settled[oldest++]); //too cheap to step from, for this cell or any after it
+				}
+				BigInteger w = (fromStart[cell] == board.cost(cell)) ? BigInteger.ONE : BigInteger.ZERO;
+				for (int d = 0; d < 4; d++) {
+					int from = neighbor(cell, d);
+					if (onTrace(from) && isStep(from, cell)) {
+						w = w.add(ways.get(from));
+					}
+				}
+				ways.put(cell, w);
+				if (fromEnd[cell] == board.cost(cell)) {
+					total = total.add(w);
+				}
+			}
+			count = total;
+		}
+		return count;
+	}
+
+	/**
+	 * @param maxTraces most traces to iterate over, at least 1
+	 * @return the same traces, of which iterators return only the first maxTraces;
+	 *  count() and cheapestCost() still describe them all
+	 */
+	public CheapestTraces limit(long maxTraces) {
+		if (maxTraces < 1) {
+			throw new IllegalArgumentException("limit must be at least 1: " + maxTraces);
+		}
+		CheapestTraces limited = new CheapestTraces(this);
+		limited.maxTraces = maxTraces;
+		return limited;
+	}
+
+	/** @return iterator that builds each cheapest trace on demand, in depth-first order */
+	public Iterator<TraceState> iterator() {
+		return new TraceIterator();
+	}
+
+	/**
+	 * Depth-first walk of the cheapest-trace DAG. Level 0 is the starting
+	 * component and level k holds the k-th cell of the current trace; no
+	 * trace has more cells than its cost. States are persistent, so
+	 * consecutive traces share their common prefix.
+	 */
+	private class TraceIterator implements Iterator<TraceState> {
+		private final int[] cellAt = new int[cost + 1];
+		private final int[] nextDir = new int[cost + 1]; //next neighbor to try from each level
+		private final TraceState[] states = new TraceState[cost + 1];
+		private int level; //deepest level of the current partial trace
+		private boolean complete; //the current trace was returned last time
+		private TraceState next; //found but not yet returned
+		private long returned; //traces returned so far
+
+		public TraceIterator() {
+			cellAt[0] = board.getStartingCell();
+			level = (cost == 0) ? -1 : 0;
+		}
+
+		/** advances the walk to the next complete trace, or null when done */
+		private TraceState advance() {
+			if (returned == maxTraces) {
+				return null;
+			}
+			if (complete) {
+				level--; //back off the trace returned last time
+				complete = false;
+			}
+			while (level >= 0) {
+				if (nextDir[level] == 4) {
+					level--;
+					continue;
+				}
+				int c = neighbor(cellAt[level], nextDir[level]++);
+				if (level == 0 ? !(onTrace(c) && fromStart[c] == board.cost(c)) : !isStep(cellAt[level], c)) {
+					continue;
+				}
+				level++;
+				cellAt[level] = c;
+				nextDir[level] = 0;
+				states[level] = (level == 1) ? new TraceState(board, c / cols, c % cols) : new TraceState(states[level - 1], c / cols, c % cols);
+				if (fromEnd[c] == board.cost(c)) {
+					complete = true;
+					return states[level];
+				}
+			}
+			return null;
+		}
+
+		public boolean hasNext() {
+			if (next == null) {
+				next = advance();
+			}
+			return next != null;
+		}
+
+		public TraceState next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			TraceState result = next;
+			next = null;
+			returned++;
+			return result;
+		}
+	}
+}
@@ -1,28 +1,79 @@
 import java.awt.Point;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.Scanner;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
 
 /**
  * Represents a 2D circuit board as read from an input file.
+ * 
+ * Cells are stored as bit planes rather than chars: each row is packed into
+ * WORDS longs of the open plane and WORDS longs of the trace plane, one bit per
+ * column. A cell that is in neither plane is occupied ('X') unless it is the
+ * starting or ending component. Copying a board is a pair of array copies and
+ * occupancy checks are a single word lookup.
  *  
  * @author mvail
  */
 public class CircuitBoard {
-	private char[][] board;
-	private Point startingPoint;
-	private Point endingPoint;
+	private long[] open; //bit set for each 'O' cell, row-major, WORDS longs per row
+	private long[] trace; //bit set for each 'T' cell, same layout as open
+	private int startRow = -1; //starting component, -1 until read
+	private int startCol;
+	private int endRow = -1; //ending component, -1 until read
+	private int endCol;
+	private byte[] costs; //cost of each cell, row-major, from the cost map; null when every cell costs 1
 
 	//constants you may find useful
 	private final int ROWS; //initialized in constructor
 	private final int COLS; //initialized in constructor
-	private final char OPEN = 'O'; //capital 'o'
-	private final char CLOSED = 'X';
-	private final char TRACE = 'T';
-	private final char START = '1';
-	private final char END = '2';
-	private final String ALLOWED_CHARS = "OXT12";
-	private static IUDoubleLinkedList<Character> allowedCharList = new IUDoubleLinkedList<Character>();
+	private final int WORDS; //longs per row in each bit plane
+	private static final char OPEN = 'O'; //capital 'o'
+	private static final char CLOSED = 'X';
+	private static final char TRACE = 'T';
+	private static final char START = '1';
+	private static final char END = '2';
+	private static final String ALLOWED_CHARS = "" + OPEN + CLOSED + TRACE + START + END;
+	/** 
+	 * true for each char in ALLOWED_CHARS, indexed by char. Built once when the
+	 * class loads and never written again, so every board and every thread can
+	 * share it; classifying a char costs the same however many boards are read.
+	 */
+	private static final boolean[] CELL_CHARS = new boolean[128];
+	/** 1 for OPEN and TRACE, indexed by byte, to fill the bit planes without branching */
+	private static final byte[] OPEN_BIT = new byte[256];
+	private static final byte[] TRACE_BIT = new byte[256];
+	/** true for each byte that is neither OPEN, CLOSED nor TRACE: a component, or not a cell char */
+	private static final boolean[] OTHER_CELL = new boolean[256];
+	static {
+		for (int i = 0; i < ALLOWED_CHARS.length(); i++) {
+			CELL_CHARS[ALLOWED_CHARS.charAt(i)] = true;
+		}
+		OPEN_BIT[OPEN] = 1;
+		TRACE_BIT[TRACE] = 1;
+		Arrays.fill(OTHER_CELL, true);
+		OTHER_CELL[OPEN] = OTHER_CELL[CLOSED] = OTHER_CELL[TRACE] = false;
+	}
+
+	/**
+	 * Binary board format: a BINARY_HEADER byte header of big-endian ints -
+	 * BINARY_MAGIC, rows, cols, starting row, starting col, ending row, ending
+	 * col and a reserved 0 - followed by each row packed 32 cells to a
+	 * little-endian long, 2 bits per cell: 0 'O', 1 'X', 2 'T', 3 component.
+	 * Bits past the last column of a row are ignored.
+	 */
+	public static final int BINARY_MAGIC = 0x43424431; //"CBD1"
+	public static final int BINARY_HEADER = 32;
+	/** added to a board file name to give the name of its cost map */
+	public static final String COST_SUFFIX = ".cost";
+	private static final long EVEN_BITS = 0x5555555555555555L;
 
 	/** Construct a CircuitBoard from a given board input file, where the first
 	 * line contains the number of rows and columns as ints and each subsequent
@@ -35,117 +86,310 @@ public class CircuitBoard {
 	 *  'T' is not expected in input files - represents part of the trace
 	 *   connecting components 1 and 2 in the solution
 	 * 
+	 * A file that starts with BINARY_MAGIC is instead read as a binary board
+	 * (see saveBinary()): it is memory-mapped and its packed cells are
+	 * unpacked straight into the bit planes, a word at a time, with no parsing.
+	 * 
+	 * No cost map is read, so every cell costs 1.
+	 * 
 	 * @param filename
-	 * 		file containing a grid of characters
-	 * @throws FileNotFoundException if Scanner cannot read the file
+	 * 		file containing a grid of characters, or a binary board
+	 * @throws FileNotFoundException if the file does not exist or cannot be read
 	 * @throws InvalidFileFormatException for any other format or content issue that prevents reading a valid input file
 	 */
 	public CircuitBoard(String filename) throws FileNotFoundException {
-		//TODO: parse the given file to populate the char[][]
-		// throw FileNotFoundException if Scanner cannot read the file
-		// throw InvalidFileFormatException if any formatting or parsing issues are encountered
-		Scanner fileScan = new Scanner(new File(filename));
-		ROWS = Integer.parseInt(fileScan.next());
-		COLS = Integer.parseInt(fileScan.next());
-		/*
-		 * Builds list containing valid characters
-		 */
-		allowedCharList.add('O');
-		allowedCharList.add('X');
-		allowedCharList.add('T');
-		allowedCharList.add('1');
-		allowedCharList.add('2');
-		/*
-		 * Builds list containing invalid characters i.e. repeated start or end points
-		 */
-		IUDoubleLinkedList<Character> usedCharList = new IUDoubleLinkedList<Character>();
-		board = new char[ROWS][COLS];
-		int j = 0;
-		int i = 0;
-		int realRowCount = 0;
-		while(fileScan.hasNext()){
-			String nextLine = fileScan.nextLine();
-			Scanner lineScan = new Scanner(nextLine);
-			realRowCount++; //For checking dimensions
-			while(lineScan.hasNext()) {
-				String nextToken = lineScan.next();
-				char nextChar = nextToken.charAt(0);
-				/*
-				 * Checks if char is valid
-				 */
-				if (!allowedCharList.contains(nextChar)) {
-					lineScan.close();
-					throw new InvalidFileFormatException(null);
+		this(filename, false);
+	}
+
+	/** Construct a CircuitBoard from a given board input file, as the one
+	 * argument constructor does, and optionally its cost map.
+	 * 
+	 * If withCosts is set and a file named filename + COST_SUFFIX exists, it
+	 * is read as the cost map of the board: the same dimensions line, then a
+	 * digit from 1 to 9 for each cell giving the cost of routing a trace
+	 * through it. The digits of cells that are not open are ignored. Without
+	 * a cost map every cell costs 1. Only searches that weigh cells should ask
+	 * for one, since the costs are part of digest().
+	 * 
+	 * @param filename
+	 * 		file containing a grid of characters, or a binary board
+	 * @param withCosts true to read the cost map next to filename, if there is one
+	 * @throws FileNotFoundException if the file does not exist or cannot be read
+	 * @throws InvalidFileFormatException for any other format or content issue that prevents reading a valid input file
+	 */
+	public CircuitBoard(String filename, boolean withCosts) throws FileNotFoundException {
+		TraceEvents.Parse event = TraceEvents.beginParse();
+		ByteBuffer binary = mapBinary(filename);
+		if (binary != null) {
+			ROWS = binary.getInt(4);
+			COLS = binary.getInt(8);
+			WORDS = (COLS + 63) >>> 6;
+			readBinary(filename, binary);
+			if (withCosts) {
+				readCosts(filename + COST_SUFFIX);
+			}
+			TraceEvents.parsed(event, filename, true, ROWS, COLS);
+			return;
+		}
+		BoardFileReader reader = new BoardFileReader(filename);
+		ROWS = reader.numRows();
+		COLS = reader.numCols();
+		WORDS = (COLS + 63) >>> 6;
+		open = new long[ROWS * WORDS];
+		trace = new long[ROWS * WORDS];
+		reader.readRows(new BoardFileReader.RowHandler() {
+			public void row(int row, byte[] cells, int[] columns, int count, int line) {
+				long openBits = 0; //bits of the word of the bit planes being filled
+				long traceBits = 0;
+				for (int col = 0; col < count; col++) {
+					int b = cells[col] & 0xFF;
+					openBits |= (long) OPEN_BIT[b] << col; //looked up rather than compared, as 'O' and 'X' follow no pattern
+					traceBits |= (long) TRACE_BIT[b] << col;
+					if (OTHER_CELL[b]) {
+						readComponent(filename, row, col, (char) b, line, columns[col]);
+					}
+					if ((col & 63) == 63 || col == count - 1) {
+						open[row * WORDS + (col >>> 6)] = openBits;
+						trace[row * WORDS + (col >>> 6)] = traceBits;
+						openBits = 0;
+						traceBits = 0;
+					}
+				}
+			}
+		});
+		if (startRow < 0 || endRow < 0) {
+			throw new InvalidFileFormatException(filename + ": board needs one '" + START + "' and one '" + END + "'");
+		}
+		if (withCosts) {
+			readCosts(filename + COST_SUFFIX);
+		}
+		TraceEvents.parsed(event, filename, false, ROWS, COLS);
+	}
+	
+	/**
+	 * utility method for the file constructor - records a '1' or '2' read at
+	 * row, col, or rejects c if it is neither and not another cell char
+	 * @throws InvalidFileFormatException if c is not a cell char or is a second '1' or '2'
+	 */
+	private void readComponent(String filename, int row, int col, char c, int line, int column) {
+		if (!isCellChar(c)) {
+			throw new InvalidFileFormatException(filename + ": line " + line + ", column " + column 
+					+ ": '" + c + "' is not one of " + ALLOWED_CHARS);
+		}
+		if ((c == START ? startRow : endRow) >= 0) {
+			throw new InvalidFileFormatException(filename + ": line " + line + ", column " + column 
+					+ ": second '" + c + "' on board");
+		}
+		if (c == START) {
+			startRow = row;
+			startCol = col;
+		} else {
+			endRow = row;
+			endCol = col;
+		}
+	}
+	
+	/**
+	 * utility method for the file constructor - reads the cost map in
+	 * costFile, if there is one, once ROWS and COLS are set
+	 * @param costFile cost map file name
+	 * @throws FileNotFoundException if the cost map exists but cannot be read
+	 */
+	private void readCosts(final String costFile) throws FileNotFoundException {
+		if (!new File(costFile).isFile()) {
+			return;
+		}
+		BoardFileReader reader = new BoardFileReader(costFile);
+		if (reader.numRows() != ROWS || reader.numCols() != COLS) {
+			throw new InvalidFileFormatException(costFile + ": cost map is " + reader.numRows() + "x" + reader.numCols() 
+					+ ", board is " + ROWS + "x" + COLS);
+		}
+		final byte[] read = new byte[ROWS * COLS];
+		reader.readCells(new BoardFileReader.CellHandler() {
+			public void cell(int row, int col, char c, int line, int column) {
+				if (c < '1' || c > '9') {
+					throw new InvalidFileFormatException(costFile + ": line " + line + ", column " + column 
+							+ ": '" + c + "' is not a cost from 1 to 9");
 				}
-				/*
-				 * Checks if start or end points are repeated
-				 */
-				if (nextChar == '1') {
-					int y = j;
-					int x = i;
-					if (usedCharList.contains(nextChar)) {
-						throw new InvalidFileFormatException(null);
-					} else {
-						usedCharList.add(nextChar);
-						/*
-						 * designates startPoint
-						 */
-						if (y < COLS) {
-							startingPoint = new Point(x, y);
-						} else {
-							y = 0;
-							x++;
-							startingPoint = new Point(x, y);
-						}
+				read[row * COLS + col] = (byte) (c - '0');
+			}
+		});
+		costs = read;
+	}
+	
+	/**
+	 * @param filename board file
+	 * @return the whole file mapped read-only if it starts with BINARY_MAGIC, else null
+	 * @throws FileNotFoundException if the file does not exist or cannot be read
+	 */
+	private static ByteBuffer mapBinary(String filename) throws FileNotFoundException {
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			ByteBuffer magic = ByteBuffer.allocate(4);
+			channel.read(magic, 0);
+			if (magic.position() < 4 || magic.getInt(0) != BINARY_MAGIC) {
+				return null;
+			}
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new InvalidFileFormatException(filename + ": binary board is too large");
+			}
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} catch (NoSuchFileException e) {
+			throw new FileNotFoundException(filename);
+		} catch (IOException e) {
+			throw new FileNotFoundException(filename + ": " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * utility method for the file constructor - checks a mapped binary board
+	 * and unpacks it into the bit planes once ROWS, COLS and WORDS are set
+	 * @param filename board file, for error messages
+	 * @param binary the whole file, header included
+	 */
+	private void readBinary(String filename, ByteBuffer binary) {
+		int packed = (COLS + 31) >>> 5; //longs per row in the file
+		if (ROWS <= 0 || COLS <= 0 || (long) ROWS * COLS > Integer.MAX_VALUE
+				|| binary.capacity() != BINARY_HEADER + (long) ROWS * packed * 8) {
+			throw new InvalidFileFormatException(filename + ": binary board size does not match " + ROWS + "x" + COLS);
+		}
+		startRow = binary.getInt(12);
+		startCol = binary.getInt(16);
+		endRow = binary.getInt(20);
+		endCol = binary.getInt(24);
+		open = new long[ROWS * WORDS];
+		trace = new long[ROWS * WORDS];
+		binary.order(ByteOrder.LITTLE_ENDIAN);
+		long lastMask = (COLS % 64 == 0) ? -1L : (1L << COLS) - 1;
+		int components = 0;
+		for (int row = 0; row < ROWS; row++) {
+			int base = BINARY_HEADER + row * packed * 8;
+			for (int w = 0; w < WORDS; w++) {
+				long low = binary.getLong(base + 2 * w * 8);
+				long high = (2 * w + 1 < packed) ? binary.getLong(base + (2 * w + 1) * 8) : 0;
+				long mask = (w == WORDS - 1) ? lastMask : -1L;
+				long openBits = (evenBits(~(low | low >>> 1)) | evenBits(~(high | high >>> 1)) << 32) & mask;
+				long traceBits = (evenBits(low >>> 1 & ~low) | evenBits(high >>> 1 & ~high) << 32) & mask;
+				long componentBits = (evenBits(low >>> 1 & low) | evenBits(high >>> 1 & high) << 32) & mask;
+				open[row * WORDS + w] = openBits;
+				trace[row * WORDS + w] = traceBits;
+				components += Long.bitCount(componentBits);
+			}
+		}
+		if (components != 2 || !isComponent(startRow, startCol) || !isComponent(endRow, endCol) 
+				|| (startRow == endRow && startCol == endCol)) {
+			throw new InvalidFileFormatException(filename + ": binary board needs one '" + START + "' and one '" + END + "'");
+		}
+	}
+	
+	/** @return true if row, col is on the board and in neither bit plane */
+	private boolean isComponent(int row, int col) {
+		if (row < 0 || row >= ROWS || col < 0 || col >= COLS) {
+			return false;
+		}
+		long bit = 1L << col;
+		int word = row * WORDS + (col >>> 6);
+		return (open[word] & bit) == 0 && (trace[word] & bit) == 0;
+	}
+	
+	/** @return the even-numbered bits of x packed into its low 32 bits */
+	private static long evenBits(long x) {
+		x &= EVEN_BITS;
+		x = (x | x >>> 1) & 0x3333333333333333L;
+		x = (x | x >>> 2) & 0x0F0F0F0F0F0F0F0FL;
+		x = (x | x >>> 4) & 0x00FF00FF00FF00FFL;
+		x = (x | x >>> 8) & 0x0000FFFF0000FFFFL;
+		x = (x | x >>> 16) & 0x00000000FFFFFFFFL;
+		return x;
+	}
+	
+	/** @return the low 32 bits of x spread out to its even-numbered bits */
+	private static long spreadBits(long x) {
+		x &= 0x00000000FFFFFFFFL;
+		x = (x | x << 16) & 0x0000FFFF0000FFFFL;
+		x = (x | x << 8) & 0x00FF00FF00FF00FFL;
+		x = (x | x << 4) & 0x0F0F0F0F0F0F0F0FL;
+		x = (x | x << 2) & 0x3333333333333333L;
+		x = (x | x << 1) & EVEN_BITS;
+		return x;
+	}
+	
+	/**
+	 * Writes this board in the binary board format, which the file
+	 * constructor reads back without parsing.
+	 * @param filename file to create or replace
+	 * @throws IOException if the file cannot be written
+	 */
+	public void saveBinary(String filename) throws IOException {
+		int packed = (COLS + 31) >>> 5;
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer header = ByteBuffer.allocate(BINARY_HEADER);
+			header.putInt(BINARY_MAGIC).putInt(ROWS).putInt(COLS)
+					.putInt(startRow).putInt(startCol)
+					.putInt(endRow).putInt(endCol).putInt(0);
+			header.flip();
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+			ByteBuffer row = ByteBuffer.allocate(packed * 8).order(ByteOrder.LITTLE_ENDIAN);
+			for (int r = 0; r < ROWS; r++) {
+				row.clear();
+				for (int w = 0; w < WORDS; w++) {
+					long components = 0;
+					if (startRow == r && startCol >>> 6 == w) {
+						components |= 1L << startCol;
+					}
+					if (endRow == r && endCol >>> 6 == w) {
+						components |= 1L << endCol;
 					}
-				} else if (nextChar == '2') {
-					int y = j;
-					int x = i;
-					if (usedCharList.contains(nextChar)) {
-						throw new InvalidFileFormatException(null);
-					} else {
-						usedCharList.add(nextChar);
-						/*
-						 * designates endingPoint
-						 */
-						if (y < COLS) {
-							endingPoint = new Point(x, y);
-						} else {
-							y = 0;
-							x++;
-							endingPoint = new Point(x, y);
-						}
+					long low = ~(open[r * WORDS + w] | trace[r * WORDS + w]); //'X' or component
+					long high = trace[r * WORDS + w] | components; //'T' or component
+					row.putLong(spreadBits(low) | spreadBits(high) << 1);
+					if (2 * w + 1 < packed) {
+						row.putLong(spreadBits(low >>> 32) | spreadBits(high >>> 32) << 1);
 					}
 				}
-				if (j < COLS) {
-					board[i][j] = nextChar;
-					j++;
-				} else {
-					j = 0;
-					i++;
-					board[i][j] = nextChar;
-					j++;
-				} 
+				row.flip();
+				while (row.hasRemaining()) {
+					channel.write(row);
+				}
 			}
-			lineScan.close();
 		}
-		/*
-		 * Checks if given dimensions match actual dimensions
-		 * TODO ensure rows and cols are as specified (don't know how)
-		 */
-		if(j != COLS || i != ROWS - 1 || realRowCount != ROWS + 1){
-			fileScan.close();
-			throw new InvalidFileFormatException(null);
+	}
+	
+	/**
+	 * Feeds the contents of this board to digest: its dimensions, both
+	 * components, both bit planes and the cost map if it has one. Boards with
+	 * the same cells and costs feed the same bytes, whichever format they were
+	 * read from.
+	 * @param digest digest to update
+	 */
+	public void digest(MessageDigest digest) {
+		ByteBuffer bytes = ByteBuffer.allocate(Math.max(24, WORDS * 16));
+		bytes.putInt(ROWS).putInt(COLS)
+				.putInt(startRow).putInt(startCol)
+				.putInt(endRow).putInt(endCol);
+		bytes.flip();
+		digest.update(bytes);
+		for (int row = 0; row < ROWS; row++) {
+			bytes.clear();
+			for (int w = 0; w < WORDS; w++) {
+				bytes.putLong(open[row * WORDS + w]);
+				bytes.putLong(trace[row * WORDS + w]);
+			}
+			bytes.flip();
+			digest.update(bytes);
 		}
-		/*
-		 * Checks if file has both start and end points
-		 */
-		if(!usedCharList.contains('1') || !usedCharList.contains('2')){
-			fileScan.close();
-			throw new InvalidFileFormatException(null);
+		if (costs != null) {
+			digest.update(costs);
 		}
-		
-		fileScan.close();
+	}
+	
+	/** @param c character to classify
+	 * @return true if c is one of the characters a board file may contain
+	 */
+	public static boolean isCellChar(char c) {
+		return c < CELL_CHARS.length && CELL_CHARS[c];
 	}
 	
 	/** Copy constructor - duplicates original board
@@ -153,32 +397,42 @@ public class CircuitBoard {
 	 * @param original board to copy
 	 */
 	public CircuitBoard(CircuitBoard original) {
-		board = original.getBoard();
-		startingPoint = new Point(original.startingPoint);
-		endingPoint = new Point(original.endingPoint);
+		open = original.open.clone();
+		trace = original.trace.clone();
+		startRow = original.startRow;
+		startCol = original.startCol;
+		endRow = original.endRow;
+		endCol = original.endCol;
+		costs = original.costs; //never modified, so shared
 		ROWS = original.numRows();
 		COLS = original.numCols();
+		WORDS = original.WORDS;
 	}
 
-	/** utility method for copy constructor
-	 * @return copy of board array */
-	private char[][] getBoard() {
-		char[][] copy = new char[board.length][board[0].length];
-		for (int row = 0; row < board.length; row++) {
-			for (int col = 0; col < board[row].length; col++) {
-				copy[row][col] = board[row][col];
-			}
-		}
-		return copy;
-	}
-	
 	/** Return the char at board position x,y
 	 * @param row row coordinate
 	 * @param col col coordinate
 	 * @return char at row, col
 	 */
 	public char charAt(int row, int col) {
-		return board[row][col];
+		if (row < 0 || row >= ROWS || col < 0 || col >= COLS) {
+			throw new ArrayIndexOutOfBoundsException("row " + row + ", col " + col);
+		}
+		int word = row * WORDS + (col >>> 6);
+		long bit = 1L << col;
+		if ((open[word] & bit) != 0) {
+			return OPEN;
+		}
+		if ((trace[word] & bit) != 0) {
+			return TRACE;
+		}
+		if (row == startRow && col == startCol) {
+			return START;
+		}
+		if (row == endRow && col == endCol) {
+			return END;
+		}
+		return CLOSED;
 	}
 	
 	/** Return whether given board position is open
@@ -187,10 +441,10 @@ public class CircuitBoard {
 	 * @return true if position at (row, col) is open 
 	 */
 	public boolean isOpen(int row, int col) {
-		if (row < 0 || row >= board.length || col < 0 || col >= board[row].length) {
+		if (row < 0 || row >= ROWS || col < 0 || col >= COLS) {
 			return false;
 		}
-		return board[row][col] == OPEN;
+		return (open[row * WORDS + (col >>> 6)] & (1L << col)) != 0;
 	}
 	
 	/** Set given position to be a 'T'
@@ -200,20 +454,86 @@ public class CircuitBoard {
 	 */
 	public void makeTrace(int row, int col) {
 		if (isOpen(row, col)) {
-			board[row][col] = TRACE;
+			int word = row * WORDS + (col >>> 6);
+			long bit = 1L << col;
+			open[word] &= ~bit;
+			trace[word] |= bit;
 		} else {
-			throw new OccupiedPositionException("row " + row + ", col " + col + "contains '" + board[row][col] + "'");
+			throw new OccupiedPositionException("row " + row + ", col " + col + "contains '" + charAt(row, col) + "'");
 		}
 	}
 	
+	/** Set given position to be an 'O' or an 'X'
+	 * @param row
+	 * @param col
+	 * @param isOpen true for 'O', false for 'X'
+	 * @throws OccupiedPositionException if given position is a component
+	 * @throws ArrayIndexOutOfBoundsException if given position is off the board
+	 */
+	public void setOpen(int row, int col, boolean isOpen) {
+		char c = charAt(row, col);
+		if (c == START || c == END) {
+			throw new OccupiedPositionException("row " + row + ", col " + col + "contains '" + c + "'");
+		}
+		int word = row * WORDS + (col >>> 6);
+		long bit = 1L << col;
+		trace[word] &= ~bit;
+		if (isOpen) {
+			open[word] |= bit;
+		} else {
+			open[word] &= ~bit;
+		}
+	}
+	
+	/** Return whether given cell is open
+	 * @param cell packed index, row * numCols() + col
+	 * @return true if cell is on the board and open
+	 */
+	public boolean isOpen(int cell) {
+		if (cell < 0 || cell >= ROWS * COLS) {
+			return false;
+		}
+		return isOpen(cell / COLS, cell % COLS);
+	}
+	
+	/** @param row row coordinate
+	 * @param col col coordinate
+	 * @return packed index of row, col: row * numCols() + col
+	 */
+	public int cellIndex(int row, int col) {
+		return row * COLS + col;
+	}
+	
+	/** @return packed index of the starting component, row * numCols() + col */
+	public int getStartingCell() {
+		return startRow * COLS + startCol;
+	}
+	
+	/** @return packed index of the ending component, row * numCols() + col */
+	public int getEndingCell() {
+		return endRow * COLS + endCol;
+	}
+	
+	/** @param cell packed index of an open cell, row * numCols() + col
+	 * @return cost of routing a trace through cell, from 1 to 9; 1 without a cost map
+	 */
+	public int cost(int cell) {
+		return (costs == null) ? 1 : costs[cell];
+	}
+	
+	/** @return true if this board was read with a cost map */
+	public boolean hasCosts() {
+		return costs != null;
+	}
+	
 	/** @return starting Point */
 	public Point getStartingPoint() {
-		return new Point(startingPoint);
+		return new Point(startRow, startCol);
 	}
 	
 	/** @return ending Point */
 	public Point getEndingPoint() {
-		return new Point(endingPoint);
+		return new Point(endRow, endCol);
 	}
 	
 	/** @return number of rows in this CircuitBoard */
@@ -231,9 +551,9 @@ public class CircuitBoard {
 	 */
 	public String toString() {
 		StringBuilder str = new StringBuilder();
-		for (int row = 0; row < board.length; row++) {
-			for (int col = 0; col < board[row].length; col++) {
-				str.append(board[row][col] + " ");
+		for (int row = 0; row < ROWS; row++) {
+			for (int col = 0; col < COLS; col++) {
+				str.append(charAt(row, col) + " ");
 			}
 			str.append("\n");
 		}
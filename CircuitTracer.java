@@ -1,6 +1,14 @@
-import java.awt.Point;
+import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 
 
 /**
@@ -15,15 +23,25 @@ public class CircuitTracer {
 	private CircuitBoard board;
 	private Storage<TraceState> stateStore;
 	private ArrayList<TraceState> bestPaths;
+	private SearchStats stats;
 
 	/** launch the program
-	 * @param args three required arguments:
-	 *  first arg: -s for stack or -q for queue
+	 * @param args optional leading options followed by three required arguments:
+	 *  options: -t N to use N threads for parallel queue mode (default: all processors)
+	 *           -k dir to keep results in dir and reuse them for boards solved before
+	 *           -v to print search statistics to stderr, or -j to print them as JSON
+	 *           -m N to hold at most N states in memory for stack and queue modes,
+	 *            writing the rest to the temporary directory
+	 *           --compact to print each trace as a line of row,col pairs instead of a board
+	 *           --limit N to print only the first N shortest traces
+	 *  first arg: -s for stack, -q for queue, -d for distance layers, -b for bidirectional,
+	 *   -a for A* best-first, -p for parallel queue, -u for one shortest trace by jump points
+	 *   or -w for the cheapest traces by the costs in the board's cost map (file + ".cost")
 	 *  second arg: -c for console output or -g for GUI output
 	 *  third arg: input file name 
 	 */
 	public static void main(String[] args) {
-		if (args.length != 3) {
+		if (args.length < 3) {
 			printUsage();
 			System.exit(1);
 		}
@@ -39,7 +57,8 @@ public class CircuitTracer {
 	private static void printUsage() {
 		//TODO: print out clear usage instructions when there are problems with
 		// any command line args
-		System.out.println("Usage: $ java CircuitTracer stack(-s)/queue(-q)" 
+		System.out.println("Usage: $ java CircuitTracer [-t threads] [-k cacheDir] [-v|-j] [-m memoryStates] [--compact] [--limit N] "
+							+"stack(-s)/queue(-q)/distance layers(-d)/bidirectional(-b)/A*(-a)/parallel queue(-p)/jump points(-u)/weighted(-w) " 
 							+"console(-c)/GUI(-g) file");
 	}
 	
@@ -54,71 +73,432 @@ public class CircuitTracer {
 		/*
 		 * checks args and assigns variables if valid, prints usage if invalid
 		 */
-		IUDoubleLinkedList<String> validFirstArgs = new IUDoubleLinkedList<String>();
-		validFirstArgs.add("-s");
-		validFirstArgs.add("-q");
-		String firstArg = args[0]; //first argument
-		if(!validFirstArgs.contains(firstArg)){
+		int threads = Runtime.getRuntime().availableProcessors();
+		String cacheDir = null;
+		String statsFormat = null; //-v or -j, null for no statistics
+		int memoryCap = 0; //0 for no limit
+		boolean compact = false;
+		long limit = 0; //0 for every shortest trace
+		int next = 0; //index of the next arg to read
+		while(args.length - next > 3){
+			String option = args[next++];
+			if(option.equals("-t")){
+				try {
+					threads = Integer.parseInt(args[next++]);
+				} catch (NumberFormatException e) {
+					threads = 0;
+				}
+				if(threads < 1){
+					printUsage();
+					return;
+				}
+			}else if(option.equals("--compact")){
+				compact = true;
+			}else if(option.equals("--limit")){
+				try {
+					limit = Long.parseLong(args[next++]);
+				} catch (NumberFormatException e) {
+					limit = 0;
+				}
+				if(limit < 1){
+					printUsage();
+					return;
+				}
+			}else if(option.equals("-k")){
+				cacheDir = args[next++];
+			}else if(option.equals("-v") || option.equals("-j")){
+				statsFormat = option;
+			}else if(option.equals("-m")){
+				try {
+					memoryCap = Integer.parseInt(args[next++]);
+				} catch (NumberFormatException e) {
+					memoryCap = 0;
+				}
+				if(memoryCap < 2){
+					printUsage();
+					return;
+				}
+			}else{
+				printUsage();
+				return;
+			}
+		}
+		String firstArg = args[next]; //first argument
+		if(!isSearchMode(firstArg)){
 			printUsage();
+			return;
 		}
 		IUDoubleLinkedList<String> validSecondArgs = new IUDoubleLinkedList<String>();
 		validSecondArgs.add("-c");
 		validSecondArgs.add("-g");
-		String secondArg = args[1]; //second argument
+		String secondArg = args[next + 1]; //second argument
 		if(!validSecondArgs.contains(secondArg)){
 			printUsage();
+			return;
 		}
-		String filename = args[2]; //filename
+		String filename = args[next + 2]; //filename
 		if(secondArg.equals("-g")){
 			System.out.println("GUI(-q) not supported, running in console(-c).\n");
 			secondArg = "-c";
 		}
-		//TODO: initialize the Storage to use either a stack or queue
-		if(firstArg.equals("-s")){
-			stateStore = new Storage<TraceState>(Storage.DataStructure.stack);
-		}else if(firstArg.equals("-q")){
-			stateStore = new Storage<TraceState>(Storage.DataStructure.queue);
-		}
 		//TODO: read in the CircuitBoard from the given file
+		long allocated = SearchStats.threadAllocatedBytes();
+		long time = System.nanoTime();
 		try {
-			board = new CircuitBoard(filename);
+			board = new CircuitBoard(filename, usesCosts(firstArg));
 		} catch (FileNotFoundException e) {
 			System.err.println("File not found.");
 			return;
 		} catch (InvalidFileFormatException e){
-			System.err.println("Invalid file format.");
+			System.err.println("Invalid file format: " + e.getMessage());
 			return;
 		} catch (NumberFormatException e){
 			System.err.println("Invalid number format.");
 			return;
 		}
 		//TODO: run the search for best paths
+		SearchStats stats = new SearchStats(firstArg, board);
+		stats.setParseNanos(System.nanoTime() - time);
+		time = System.nanoTime();
+		Iterable<TraceState> traces;
+		TraceCache cache = null;
+		if(cacheDir != null){
+			try {
+				cache = new TraceCache(Runtime.getRuntime().maxMemory() / 8, new File(cacheDir));
+			} catch (IOException e) {
+				System.err.println("Cannot use cache: " + e.getMessage());
+				return;
+			}
+			traces = cache.search(board, firstArg, threads, stats, memoryCap, limit);
+		}else{
+			traces = search(board, firstArg, threads, stats, memoryCap, limit);
+		}
+		stats.setSearchNanos(System.nanoTime() - time);
+		time = System.nanoTime();
+		//TODO: output results to console or GUI, according to specified choice
+		TraceEvents.Output output = TraceEvents.beginOutput();
+		System.out.flush();
+		long printed = printTraces(traces, new FileOutputStream(FileDescriptor.out), compact);
+		printTotal(firstArg, traces, printed, System.out);
+		System.out.flush();
+		TraceEvents.printed(output, board.numRows(), board.numCols(), printed);
+		stats.setPrintNanos(System.nanoTime() - time);
+		stats.setTraces(printed);
+		if(allocated >= 0){
+			stats.setAllocatedBytes(SearchStats.threadAllocatedBytes() - allocated);
+		}
+		if(statsFormat != null){
+			System.err.println(statsFormat.equals("-j") ? stats.toJson() : stats.toString());
+		}
+		if(cache != null){
+			System.err.println(cache);
+		}
+	}
+	
+	/**
+	 * Runs one of the Storage-based searches on a board that has already been read.
+	 * @param board board to search
+	 * @param mode -s for stack, -q for queue or -a for A*
+	 * @param stats receives the counts of the search
+	 * @param memoryCap most states to hold in memory for -s and -q, writing the
+	 *  rest to the temporary directory, or 0 for no limit
+	 * @param limit most traces to keep, or 0 for all of them
+	 */
+	private CircuitTracer(CircuitBoard board, String mode, SearchStats stats, int memoryCap, long limit) {
+		this.board = board;
+		this.stats = stats;
+		if(mode.equals("-s") && memoryCap > 0){
+			stateStore = Storage.getDiskStackInstance(memoryCap, new TraceStateCodec(board), SpillingStore.temporaryDirectory());
+		}else if(mode.equals("-q") && memoryCap > 0){
+			stateStore = Storage.getDiskQueueInstance(memoryCap, new TraceStateCodec(board), SpillingStore.temporaryDirectory());
+		}else if(mode.equals("-s")){
+			stateStore = new Storage<TraceState>(Storage.DataStructure.stack);
+		}else if(mode.equals("-q")){
+			stateStore = new Storage<TraceState>(Storage.DataStructure.queue);
+		}else if(mode.equals("-a")){
+			stateStore = new Storage<TraceState>(Storage.DataStructure.priority, new EstimateOrder(board.getEndingCell(), board.numCols()));
+		}
+		try {
+			searchStorage(mode, limit);
+		} finally {
+			stateStore.close();
+		}
+		stats.notePeakHeld(stateStore.peakSize());
+	}
+	
+	/** @param mode command line flag
+	 * @return true if mode is one of the search mode flags accepted as first arg */
+	public static boolean isSearchMode(String mode) {
+		IUDoubleLinkedList<String> validFirstArgs = new IUDoubleLinkedList<String>();
+		validFirstArgs.add("-s");
+		validFirstArgs.add("-q");
+		validFirstArgs.add("-d");
+		validFirstArgs.add("-b");
+		validFirstArgs.add("-a");
+		validFirstArgs.add("-p");
+		validFirstArgs.add("-u");
+		validFirstArgs.add("-w");
+		return validFirstArgs.contains(mode);
+	}
+	
+	/**
+	 * @param mode search mode flag
+	 * @return true if mode weighs cells by the board's cost map, so the map should be read with the board
+	 */
+	static boolean usesCosts(String mode) {
+		return mode.equals("-w");
+	}
+	
+	/**
+	 * Finds the shortest traces on a board with the given search mode.
+	 * @param board board to search
+	 * @param mode search mode flag as accepted by main: -s, -q, -d, -b, -a, -p, -u or -w
+	 * @param threads worker threads for parallel queue mode
+	 * @return shortest traces, only one for -u, or the cheapest traces for -w; -d and -b return a
+	 *  ShortestTraces and -w a CheapestTraces that builds each trace on demand
+	 * @throws IllegalArgumentException if mode is not a search mode flag
+	 */
+	public static Iterable<TraceState> search(CircuitBoard board, String mode, int threads) {
+		return search(board, mode, threads, new SearchStats(mode, board));
+	}
+	
+	/**
+	 * Finds the shortest traces on a board with the given search mode, counting the work done.
+	 * @param board board to search
+	 * @param mode search mode flag as accepted by main: -s, -q, -d, -b, -a, -p, -u or -w
+	 * @param threads worker threads for parallel queue mode
+	 * @param stats receives the counts of the search
+	 * @return shortest traces, only one for -u, or the cheapest traces for -w; -d and -b return a
+	 *  ShortestTraces and -w a CheapestTraces that builds each trace on demand
+	 * @throws IllegalArgumentException if mode is not a search mode flag
+	 */
+	public static Iterable<TraceState> search(CircuitBoard board, String mode, int threads, SearchStats stats) {
+		return search(board, mode, threads, stats, 0);
+	}
+	
+	/**
+	 * Finds the shortest traces on a board with the given search mode, counting the work done
+	 * and, for stack and queue modes, holding only so many states in memory.
+	 * @param board board to search
+	 * @param mode search mode flag as accepted by main: -s, -q, -d, -b, -a, -p, -u or -w
+	 * @param threads worker threads for parallel queue mode
+	 * @param stats receives the counts of the search
+	 * @param memoryCap most states -s and -q hold in memory, writing the rest
+	 *  to the temporary directory, or 0 for no limit
+	 * @return shortest traces, only one for -u, or the cheapest traces for -w; -d and -b return a
+	 *  ShortestTraces and -w a CheapestTraces that builds each trace on demand
+	 * @throws IllegalArgumentException if mode is not a search mode flag
+	 */
+	public static Iterable<TraceState> search(CircuitBoard board, String mode, int threads, SearchStats stats, int memoryCap) {
+		return search(board, mode, threads, stats, memoryCap, 0);
+	}
+	
+	/**
+	 * Finds the first few shortest traces on a board with the given search mode. Queue,
+	 * A* and parallel queue searches stop as soon as limit traces are confirmed shortest;
+	 * stack search must still finish to confirm them, but keeps no more than limit.
+	 * @param board board to search
+	 * @param mode search mode flag as accepted by main: -s, -q, -d, -b, -a, -p, -u or -w
+	 * @param threads worker threads for parallel queue mode
+	 * @param stats receives the counts of the search
+	 * @param memoryCap most states -s and -q hold in memory, writing the rest
+	 *  to the temporary directory, or 0 for no limit
+	 * @param limit most traces to return, or 0 for all of them
+	 * @return the first limit shortest traces in the order the mode finds them, only one for -u,
+	 *  or the first limit cheapest traces for -w; -d and -b return a ShortestTraces and -w a
+	 *  CheapestTraces that builds each trace on demand
+	 * @throws IllegalArgumentException if mode is not a search mode flag or limit is negative
+	 */
+	public static Iterable<TraceState> search(CircuitBoard board, String mode, int threads, SearchStats stats, int memoryCap, long limit) {
+		if(!isSearchMode(mode)){
+			throw new IllegalArgumentException("not a search mode: " + mode);
+		}
+		if(limit < 0){
+			throw new IllegalArgumentException("limit must not be negative: " + limit);
+		}
+		if(limit > 0 && (mode.equals("-d") || mode.equals("-b"))){
+			return ((ShortestTraces) search(board, mode, threads, stats, memoryCap, 0)).limit(limit);
+		}
+		if(mode.equals("-w")){
+			/*
+			 * settles cells cheapest first from both components and streams the cheapest traces
+			 */
+			CheapestTraces cheapest = new CheapestTraces(board);
+			stats.addGenerated(cheapest.cellsStored());
+			stats.addExpanded(cheapest.cellsSettled());
+			stats.notePeakHeld(cheapest.widestFrontier());
+			return (limit > 0) ? cheapest.limit(limit) : cheapest;
+		}
+		if(mode.equals("-d")){
+			/*
+			 * counts shortest traces from distance layers and streams them one at a time
+			 */
+			DistanceField fromStart = DistanceField.fromStart(board);
+			DistanceField fromEnd = DistanceField.fromEnd(board);
+			stats.addGenerated(fromStart.size() + fromEnd.size());
+			stats.addExpanded(fromStart.size() + fromEnd.size());
+			stats.notePeakHeld(Math.max(fromStart.widestLevel(), fromEnd.widestLevel()));
+			return new ShortestTraces(board, fromStart, fromEnd);
+		}
+		if(mode.equals("-b")){
+			/*
+			 * grows distance layers from both components until they meet
+			 */
+			BidirectionalSearch bidirectional = new BidirectionalSearch(board);
+			stats.addGenerated(bidirectional.cellsReached());
+			stats.addExpanded(bidirectional.cellsExpanded());
+			stats.notePeakHeld(bidirectional.widestLevel());
+			return bidirectional.getTraces();
+		}
+		if(mode.equals("-p")){
+			return ParallelFrontierSearch.shared(threads).search(board, stats, limit);
+		}
+		if(mode.equals("-u")){
+			/*
+			 * expands only jump points and returns a single shortest trace
+			 */
+			JumpPointSearch jumpPoints = new JumpPointSearch(board);
+			stats.addGenerated(jumpPoints.jumpPointsGenerated());
+			stats.addExpanded(jumpPoints.jumpPointsExpanded());
+			stats.notePeakHeld(jumpPoints.widestFrontier());
+			return jumpPoints.getTraces();
+		}
+		return new CircuitTracer(board, mode, stats, memoryCap, limit).bestPaths;
+	}
+	
+	/**
+	 * Prints the line that follows the traces of -d and -w, giving how many
+	 * shortest or cheapest traces there are in all; nothing for other modes
+	 * or when no trace was printed.
+	 * @param mode search mode flag the traces were found with
+	 * @param traces traces returned by search() for mode
+	 * @param printed number of traces printed
+	 * @param out stream to print to
+	 */
+	static void printTotal(String mode, Iterable<TraceState> traces, long printed, PrintStream out) {
+		if(printed > 0 && mode.equals("-d")){
+			ShortestTraces counted = (ShortestTraces) traces;
+			out.println(counted.count() + " shortest traces of length " + counted.shortestLength());
+		}
+		if(printed > 0 && traces instanceof CheapestTraces){
+			CheapestTraces counted = (CheapestTraces) traces;
+			out.println(counted.count() + " cheapest traces of cost " + counted.cheapestCost());
+		}
+	}
+	
+	/**
+	 * Prints each trace as a board followed by a blank line, or "No solutions." if there are none.
+	 * @param traces traces to print, all on the same board
+	 * @param out stream to print to
+	 * @return number of traces printed
+	 */
+	public static long printTraces(Iterable<TraceState> traces, PrintStream out) {
+		return printTraces(traces, out, false);
+	}
+	
+	/**
+	 * Writes each trace through a TraceRenderer, as a board followed by a blank line
+	 * or as a line of row,col pairs, or "No solutions." if there are none.
+	 * @param traces traces to write, all on the same board
+	 * @param out stream to write to, flushed but left open
+	 * @param compact true for a line of row,col pairs per trace, false for the full board
+	 * @return number of traces written
+	 * @throws UncheckedIOException if out cannot be written
+	 */
+	public static long printTraces(Iterable<TraceState> traces, OutputStream out, boolean compact) {
+		TraceRenderer renderer = new TraceRenderer(out, compact);
+		long printed = 0;
+		try {
+			for(TraceState t: traces){
+				renderer.render(t);
+				printed++;
+			}
+			if(printed == 0){
+				renderer.println("No solutions.");
+			}
+			renderer.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return printed;
+	}
+	
+	/**
+	 * Runs the search for best paths, taking states from stateStore until it
+	 * is empty, until every state left is too long - for queue search, once a
+	 * state longer than the traces found comes out; for A*, once one is
+	 * estimated longer - or, except for stack search, until limit traces are found.
+	 * @param firstArg search mode flag
+	 * @param limit most traces to keep, or 0 for all of them
+	 */
+	private void searchStorage(String firstArg, long limit) {
 		bestPaths = new ArrayList<TraceState>();
 		/*
 		 * manual solution to finding first trace points
 		 */
-		if(board.isOpen(board.getStartingPoint().x + 1, board.getStartingPoint().y)){ //checks point below starting
-			TraceState below = new TraceState(board, board.getStartingPoint().x + 1, board.getStartingPoint().y);
+		int startRow = board.getStartingCell() / board.numCols();
+		int startCol = board.getStartingCell() % board.numCols();
+		int endRow = board.getEndingCell() / board.numCols();
+		int endCol = board.getEndingCell() % board.numCols();
+		if(board.isOpen(startRow + 1, startCol)){ //checks point below starting
+			TraceState below = new TraceState(board, startRow + 1, startCol);
 			stateStore.store(below);
+			stats.addGenerated(1);
 		}
-		if(board.isOpen(board.getStartingPoint().x - 1, board.getStartingPoint().y)){ //checks point above starting
-			TraceState above = new TraceState(board, board.getStartingPoint().x - 1, board.getStartingPoint().y);
+		if(board.isOpen(startRow - 1, startCol)){ //checks point above starting
+			TraceState above = new TraceState(board, startRow - 1, startCol);
 			stateStore.store(above);
+			stats.addGenerated(1);
 		}
-		if(board.isOpen(board.getStartingPoint().x, board.getStartingPoint().y - 1)){ //checks point left of starting
-			TraceState left = new TraceState(board, board.getStartingPoint().x, board.getStartingPoint().y - 1);
+		if(board.isOpen(startRow, startCol - 1)){ //checks point left of starting
+			TraceState left = new TraceState(board, startRow, startCol - 1);
 			stateStore.store(left);
+			stats.addGenerated(1);
 		}
-		if(board.isOpen(board.getStartingPoint().x, board.getStartingPoint().y + 1)){ //checks point right of starting
-			TraceState right = new TraceState(board, board.getStartingPoint().x, board.getStartingPoint().y + 1);
+		if(board.isOpen(startRow, startCol + 1)){ //checks point right of starting
+			TraceState right = new TraceState(board, startRow, startCol + 1);
 			stateStore.store(right);
+			stats.addGenerated(1);
+		}
+		/*
+		 * stack mode prunes by bound: shortest length reached at each cell so far
+		 */
+		int[] bestDepth = null;
+		if(firstArg.equals("-s")){
+			bestDepth = new int[board.numRows() * board.numCols()];
+			Arrays.fill(bestDepth, Integer.MAX_VALUE);
 		}
+		int deepest = 0; //greatest path length retrieved so far
+		int highWater = 1; //peak size to report when reached
 		while(!stateStore.isEmpty()){
 			TraceState nextTrace = stateStore.retreive();
+			if(nextTrace.pathLength() > deepest){
+				deepest = nextTrace.pathLength();
+				TraceEvents.level(board.numRows(), board.numCols(), deepest, stateStore.size() + 1);
+			}
+			if(stateStore.peakSize() >= highWater){
+				TraceEvents.highWater(board.numRows(), board.numCols(), stateStore.peakSize());
+				highWater = stateStore.peakSize() * 2;
+			}
+			if(bestDepth != null && isPruned(nextTrace, bestDepth)){
+				stats.addPruned(1);
+				continue;
+			}
+			if(firstArg.equals("-a") && !bestPaths.isEmpty() 
+					&& estimatedLength(nextTrace, endRow, endCol) > bestPaths.get(0).pathLength()){
+				stats.addPruned(1 + stateStore.size());
+				break; //everything left is estimated longer than the traces already found
+			}
+			if(firstArg.equals("-q") && !bestPaths.isEmpty() && nextTrace.pathLength() > bestPaths.get(0).pathLength()){
+				stats.addPruned(1 + stateStore.size());
+				break; //queue order is by length, so everything left is longer too
+			}
 			if(nextTrace.isComplete()){
 				if(!bestPaths.isEmpty()){
 					if(nextTrace.pathLength() == bestPaths.get(0).pathLength()){
-						bestPaths.add(nextTrace);
+						if(limit == 0 || bestPaths.size() < limit){
+							bestPaths.add(nextTrace);
+						}
 					}else if(nextTrace.pathLength() < bestPaths.get(0).pathLength()){
 						bestPaths.clear();
 						bestPaths.add(nextTrace);
@@ -126,34 +506,93 @@ public class CircuitTracer {
 				}else{
 					bestPaths.add(nextTrace);
 				}
+				if(!firstArg.equals("-s") && bestPaths.size() == limit){
+					stats.addPruned(stateStore.size());
+					break; //queue and A* find shortest traces first, so these are confirmed
+				}
 			}else{ //generate all valid next TraceState objects from the current TraceState and add them to stateStore
-				if(nextTrace.getBoard().isOpen(nextTrace.getRow() + 1, nextTrace.getCol())){ //checks point below nextTrace
+				stats.addExpanded(1);
+				long before = stateStore.size();
+				if(nextTrace.isOpen(nextTrace.getRow() + 1, nextTrace.getCol())){ //checks point below nextTrace
 					TraceState newBelow = new TraceState(nextTrace, nextTrace.getRow() + 1, nextTrace.getCol());
 					stateStore.store(newBelow);
 				}
-				if(nextTrace.getBoard().isOpen(nextTrace.getRow() - 1, nextTrace.getCol())){ //checks point above nextTrace
+				if(nextTrace.isOpen(nextTrace.getRow() - 1, nextTrace.getCol())){ //checks point above nextTrace
 					TraceState newAbove = new TraceState(nextTrace, nextTrace.getRow() - 1, nextTrace.getCol());
 					stateStore.store(newAbove);
 				}
-				if(nextTrace.getBoard().isOpen(nextTrace.getRow(), nextTrace.getCol() - 1)){ //checks point left of nextTrace
+				if(nextTrace.isOpen(nextTrace.getRow(), nextTrace.getCol() - 1)){ //checks point left of nextTrace
 					TraceState newLeft = new TraceState(nextTrace, nextTrace.getRow(), nextTrace.getCol() - 1);
 					stateStore.store(newLeft);
 				}
-				if(nextTrace.getBoard().isOpen(nextTrace.getRow(), nextTrace.getCol() + 1)){ //checks point right of nextTrace
+				if(nextTrace.isOpen(nextTrace.getRow(), nextTrace.getCol() + 1)){ //checks point right of nextTrace
 					TraceState newRight = new TraceState(nextTrace, nextTrace.getRow(), nextTrace.getCol() + 1);
 					stateStore.store(newRight);
 				}
+				stats.addGenerated(stateStore.size() - before);
 			}
 		}
-		//TODO: output results to console or GUI, according to specified choice
-		if(bestPaths.isEmpty()){
-			System.out.println("No solutions.");
+	}
+	
+	/**
+	 * Branch-and-bound test for depth-first search. A state is pruned if its
+	 * length plus its Manhattan lower bound is already longer than the best
+	 * complete trace, or if an earlier state reached the same cell in fewer
+	 * steps. States that tie either bound are kept, so every shortest trace
+	 * is still found.
+	 * @param state state about to be expanded
+	 * @param bestDepth shortest length seen at each cell, updated for state
+	 * @return true if state cannot lead to a shortest trace
+	 */
+	private boolean isPruned(TraceState state, int[] bestDepth) {
+		if (!bestPaths.isEmpty() 
+				&& estimatedLength(state, board.getEndingCell() / board.numCols(), board.getEndingCell() % board.numCols()) > bestPaths.get(0).pathLength()) {
+			return true;
 		}
-		for(TraceState t: bestPaths){
-			System.out.println(t.getBoard().toString());
+		int cell = state.getRow() * board.numCols() + state.getCol();
+		if (state.pathLength() > bestDepth[cell]) {
+			return true;
 		}
+		bestDepth[cell] = state.pathLength();
+		return false;
 	}
 	
+	/**
+	 * Lower bound on the length of any complete trace extending a state: its
+	 * length so far plus the Manhattan distance from its last point to a cell
+	 * adjacent to the ending component. Never overestimates, and grows by at
+	 * most one per step, so best-first search by this estimate finds shortest
+	 * traces first.
+	 * @param state partial trace
+	 * @param endRow row of the ending component
+	 * @param endCol column of the ending component
+	 * @return estimated length of the shortest complete trace through state
+	 */
+	private static int estimatedLength(TraceState state, int endRow, int endCol) {
+		return state.pathLength() + Math.abs(state.getRow() - endRow) + Math.abs(state.getCol() - endCol) - 1;
+	}
 	
+	/**
+	 * A* ordering of states: smallest estimated length first, and among equal
+	 * estimates the longer path first so complete traces surface early.
+	 * Storage breaks any remaining tie by insertion order.
+	 */
+	private static class EstimateOrder implements Comparator<TraceState> {
+		private final int endRow;
+		private final int endCol;
+		
+		public EstimateOrder(int endCell, int cols) {
+			endRow = endCell / cols;
+			endCol = endCell % cols;
+		}
+		
+		public int compare(TraceState a, TraceState b) {
+			int result = Integer.compare(estimatedLength(a, endRow, endCol), estimatedLength(b, endRow, endCol));
+			if (result == 0) {
+				result = Integer.compare(b.pathLength(), a.pathLength());
+			}
+			return result;
+		}
+	}
 	
 } // class CircuitTracer
@@ -0,0 +1,149 @@
+import java.awt.Point;
+
+/**
+ * Breadth-first distance layers over the open cells of a CircuitBoard, grown
+ * outward from one of its components. Cells adjacent to the component are at
+ * distance 1, matching TraceState.pathLength() for a trace ending there.
+ *
+ * The field can be grown one level at a time with expandLevel() or all at once
+ * with expandAll(). Cells are kept as packed indices (row * cols + col) in the
+ * order they were reached, so that order is also sorted by distance.
+ *
+ * @author CS221
+ */
+public class DistanceField {
+	/** row and column offsets in neighbor order: below, above, left, right */
+	static final int[] DROW = {1, -1, 0, 0};
+	static final int[] DCOL = {0, 0, -1, 1};
+
+	private final CircuitBoard board;
+	private final int rows;
+	private final int cols;
+	private final int[] dist; //distance per cell, 0 if not reached
+	private final int[] order; //reached cells in BFS order
+	private int size; //number of reached cells
+	private int levelStart; //index in order of the first cell of the deepest level
+	private int depth; //distance of the deepest level
+	private int widest; //most cells in any one level
+
+	/** Seeds a field with the open neighbors of origin at distance 1
+	 * @param board board to measure
+	 * @param origin component to measure distances from
+	 */
+	public DistanceField(CircuitBoard board, Point origin) {
+		this(board, board.cellIndex(origin.x, origin.y));
+	}
+
+	/** Seeds a field with the open neighbors of origin at distance 1
+	 * @param board board to measure
+	 * @param origin packed index, row * numCols + col, of the component to measure distances from
+	 */
+	public DistanceField(CircuitBoard board, int origin) {
+		this.board = board;
+		rows = board.numRows();
+		cols = board.numCols();
+		dist = new int[rows * cols];
+		order = new int[rows * cols];
+		depth = 1;
+		for (int d = 0; d < 4; d++) {
+			reach(origin / cols + DROW[d], origin % cols + DCOL[d], 1);
+		}
+		widest = size;
+	}
+
+	/** @return field measured from the starting component of board, fully expanded */
+	public static DistanceField fromStart(CircuitBoard board) {
+		DistanceField field = new DistanceField(board, board.getStartingCell());
+		field.expandAll();
+		return field;
+	}
+
+	/** @return field measured from the ending component of board, fully expanded */
+	public static DistanceField fromEnd(CircuitBoard board) {
+		DistanceField field = new DistanceField(board, board.getEndingCell());
+		field.expandAll();
+		return field;
+	}
+
+	/** records row, col at distance d if it is open and not yet reached */
+	private void reach(int row, int col, int d) {
+		if (board.isOpen(row, col) && dist[row * cols + col] == 0) {
+			dist[row * cols + col] = d;
+			order[size++] = row * cols + col;
+		}
+	}
+
+	/** Reaches every cell one step beyond the deepest level
+	 * @return true if any new cell was reached
+	 */
+	public boolean expandLevel() {
+		int end = size;
+		if (levelStart == end) {
+			return false;
+		}
+		for (int i = levelStart; i < end; i++) {
+			int row = order[i] / cols;
+			int col = order[i] % cols;
+			for (int d = 0; d < 4; d++) {
+				reach(row + DROW[d], col + DCOL[d], depth + 1);
+			}
+		}
+		levelStart = end;
+		if (size > end) {
+			depth++;
+			widest = Math.max(widest, size - end);
+			TraceEvents.level(rows, cols, depth, size - end);
+			return true;
+		}
+		return false;
+	}
+
+	/** Expands levels until no more cells can be reached */
+	public void expandAll() {
+		while (expandLevel()) {
+		}
+	}
+
+	/** @param row row coordinate
+	 * @param col col coordinate
+	 * @return distance to row, col, or 0 if it is outside the board or not reached yet
+	 */
+	public int distance(int row, int col) {
+		if (row < 0 || row >= rows || col < 0 || col >= cols) {
+			return 0;
+		}
+		return dist[row * cols + col];
+	}
+
+	/** @return distance of the deepest level reached so far */
+	public int depth() {
+		return depth;
+	}
+
+	/** @return most cells reached in any one level */
+	public int widestLevel() {
+		return widest;
+	}
+
+	/** @return true if the last expandLevel() reached nothing, or nothing was seeded */
+	public boolean isExhausted() {
+		return levelStart == size;
+	}
+
+	/** @return position in BFS order of the first cell of the deepest level */
+	public int frontierStart() {
+		return levelStart;
+	}
+
+	/** @return number of cells reached so far */
+	public int size() {
+		return size;
+	}
+
+	/** @param i position in BFS order, 0 <= i < size()
+	 * @return packed index (row * numCols + col) of the i-th cell reached
+	 */
+	public int cellAt(int i) {
+		return order[i];
+	}
+}
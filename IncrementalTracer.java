@@ -0,0 +1,218 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the distance fields of a solved CircuitBoard up to date as cells are
+ * opened and closed, so the shortest traces after a few edits can be found
+ * without searching the whole board again.
+ *
+ * Edits are staged with edit() and applied together by traces(). Each field
+ * is repaired in two passes, in the style of dynamic shortest-path repair:
+ * first, in order of old distance, every cell whose distance depended on a
+ * closed cell is cleared; then the cleared cells and newly opened cells are
+ * given the best distance their neighbors offer and any improvement is spread
+ * outward, nearest first. Only cells whose distance could have changed are
+ * visited, so edits that touch a small part of the board are cheap.
+ *
+ * @author CS221
+ */
+public class IncrementalTracer {
+	private final CircuitBoard board; //private copy, edited in place
+	private final int cols;
+	private final int[] fromStart; //distance of each cell from the start, 0 if not reachable
+	private final int[] fromEnd; //distance of each cell from the end, 0 if not reachable
+	private final Map<Integer, Boolean> wasOpen = new LinkedHashMap<Integer, Boolean>(); //edited cells before their first edit
+	private int cellsRepaired; //cells visited by the last repair
+	private ShortestTraces traces;
+
+	/** Solves a copy of board from scratch
+	 * @param board board to trace; later edits do not change it
+	 */
+	public IncrementalTracer(CircuitBoard board) {
+		this.board = new CircuitBoard(board);
+		cols = board.numCols();
+		fromStart = distances(DistanceField.fromStart(this.board));
+		fromEnd = distances(DistanceField.fromEnd(this.board));
+		traces = ShortestTraces.fromDistances(this.board, shortestLength(), fromStart, fromEnd);
+	}
+
+	/** @return distance of every cell in field, 0 if not reached */
+	private int[] distances(DistanceField field) {
+		int[] dist = new int[board.numRows() * cols];
+		for (int i = 0; i < field.size(); i++) {
+			int cell = field.cellAt(i);
+			dist[cell] = field.distance(cell / cols, cell % cols);
+		}
+		return dist;
+	}
+
+	/**
+	 * Stages an edit, to be applied by the next call to traces().
+	 * @param row row of the cell
+	 * @param col column of the cell
+	 * @param open true to make the cell 'O', false to make it 'X'
+	 * @throws OccupiedPositionException if the cell is a component
+	 * @throws ArrayIndexOutOfBoundsException if the cell is off the board
+	 */
+	public void edit(int row, int col, boolean open) {
+		boolean before = board.isOpen(row, col);
+		board.setOpen(row, col, open);
+		if (!wasOpen.containsKey(row * cols + col)) {
+			wasOpen.put(row * cols + col, before);
+		}
+		traces = null;
+	}
+
+	/**
+	 * Applies any staged edits, repairing the distance fields, and returns the
+	 * shortest traces on the edited board. The result reads the fields directly,
+	 * so it is only valid until the next call to edit().
+	 * @return all shortest traces on the edited board
+	 */
+	public ShortestTraces traces() {
+		if (traces == null) {
+			List<Integer> closed = new ArrayList<Integer>();
+			List<Integer> opened = new ArrayList<Integer>();
+			for (Map.Entry<Integer, Boolean> e : wasOpen.entrySet()) {
+				int cell = e.getKey();
+				boolean open = board.isOpen(cell / cols, cell % cols);
+				if (open && !e.getValue()) {
+					opened.add(cell);
+				} else if (!open && e.getValue()) {
+					closed.add(cell);
+				}
+			}
+			wasOpen.clear();
+			cellsRepaired = repair(fromStart, board.getStartingCell(), closed, opened)
+					+ repair(fromEnd, board.getEndingCell(), closed, opened);
+			traces = ShortestTraces.fromDistances(board, shortestLength(), fromStart, fromEnd);
+		}
+		return traces;
+	}
+
+	/** @return number of cells visited by the last repair, 0 if the last call to traces() had no edits to apply */
+	public int cellsRepaired() {
+		return cellsRepaired;
+	}
+
+	/** @return shortest trace length, the least start distance next to the end, 0 if there is none */
+	private int shortestLength() {
+		int end = board.getEndingCell();
+		int length = 0;
+		for (int d = 0; d < 4; d++) {
+			int d1 = distance(fromStart, end / cols + DistanceField.DROW[d], end % cols + DistanceField.DCOL[d]);
+			if (d1 > 0 && (length == 0 || d1 < length)) {
+				length = d1;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Repairs one distance field after cells were closed and opened.
+	 * @param dist field to repair, measured from origin before the edits
+	 * @param origin component the field is measured from
+	 * @param closed cells that were open and now are not
+	 * @param opened cells that were not open and now are
+	 * @return number of cells visited
+	 */
+	private int repair(int[] dist, int origin, List<Integer> closed, List<Integer> opened) {
+		int visited = 0;
+		//clear every cell that no longer has a neighbor one step nearer, nearest first
+		Storage<Long> pending = new Storage<Long>(Storage.DataStructure.priority);
+		for (int cell : closed) {
+			int d = dist[cell];
+			dist[cell] = 0;
+			if (d > 0) {
+				storeNeighbors(pending, dist, cell, d + 1);
+			}
+		}
+		List<Integer> cleared = new ArrayList<Integer>();
+		while (!pending.isEmpty()) {
+			long entry = pending.retreive();
+			int cell = (int) entry;
+			int d = (int) (entry >>> 32);
+			if (dist[cell] != d) {
+				continue; //already cleared
+			}
+			visited++;
+			if (d == 1 || nearest(dist, cell) == d - 1) {
+				continue; //still supported, and so is everything beyond it
+			}
+			dist[cell] = 0;
+			cleared.add(cell);
+			storeNeighbors(pending, dist, cell, d + 1);
+		}
+		//give cleared and opened cells the best distance their neighbors offer, then spread improvements
+		cleared.addAll(opened);
+		for (int cell : cleared) {
+			int row = cell / cols;
+			int col = cell % cols;
+			boolean seeded = isNeighbor(origin, row, col);
+			int d = seeded ? 0 : nearest(dist, cell); //distance of the nearest neighbor
+			if (seeded || d > 0) {
+				pending.store(((long) (d + 1) << 32) | cell);
+			}
+		}
+		while (!pending.isEmpty()) {
+			long entry = pending.retreive();
+			int cell = (int) entry;
+			int d = (int) (entry >>> 32);
+			if (dist[cell] != 0 && dist[cell] <= d) {
+				continue;
+			}
+			visited++;
+			dist[cell] = d;
+			int row = cell / cols;
+			int col = cell % cols;
+			for (int i = 0; i < 4; i++) {
+				int r = row + DistanceField.DROW[i];
+				int c = col + DistanceField.DCOL[i];
+				if (board.isOpen(r, c) && (dist[r * cols + c] == 0 || dist[r * cols + c] > d + 1)) {
+					pending.store(((long) (d + 1) << 32) | (r * cols + c));
+				}
+			}
+		}
+		return visited;
+	}
+
+	/** stores each neighbor of cell at distance d, keyed by d */
+	private void storeNeighbors(Storage<Long> pending, int[] dist, int cell, int d) {
+		int row = cell / cols;
+		int col = cell % cols;
+		for (int i = 0; i < 4; i++) {
+			if (distance(dist, row + DistanceField.DROW[i], col + DistanceField.DCOL[i]) == d) {
+				pending.store(((long) d << 32) | ((row + DistanceField.DROW[i]) * cols + col + DistanceField.DCOL[i]));
+			}
+		}
+	}
+
+	/** @return least nonzero distance among the neighbors of cell, 0 if none is reached */
+	private int nearest(int[] dist, int cell) {
+		int row = cell / cols;
+		int col = cell % cols;
+		int best = 0;
+		for (int i = 0; i < 4; i++) {
+			int d = distance(dist, row + DistanceField.DROW[i], col + DistanceField.DCOL[i]);
+			if (d > 0 && (best == 0 || d < best)) {
+				best = d;
+			}
+		}
+		return best;
+	}
+
+	/** @return distance of row, col in dist, or 0 if it is off the board */
+	private int distance(int[] dist, int row, int col) {
+		if (row < 0 || row >= board.numRows() || col < 0 || col >= cols) {
+			return 0;
+		}
+		return dist[row * cols + col];
+	}
+
+	/** @return true if row, col is next to packed cell */
+	private boolean isNeighbor(int cell, int row, int col) {
+		return Math.abs(cell / cols - row) + Math.abs(cell % cols - col) == 1;
+	}
+}
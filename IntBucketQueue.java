@@ -0,0 +1,122 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A priority queue of int elements for small integer priorities, after
+ * Dial's algorithm: one FIFO bucket per priority, kept in a ring indexed by
+ * priority modulo its length, and a cursor at the lowest priority that may
+ * be held. Priorities are given as elements are stored, and each bucket is
+ * a run of a plain int array, reused once it has been emptied, so nothing
+ * is boxed.
+ *
+ * Storing is O(1) amortized. Retrieving is O(1) plus the empty buckets the
+ * cursor steps over, which for Dijkstra's algorithm with cell costs of at
+ * most C is at most C per retrieval, since every priority stored is within
+ * C of the last one retrieved. The ring doubles whenever the priorities held
+ * span more buckets than it has. Elements of equal priority come out in the
+ * order they were stored, so with a single priority it is a plain queue.
+ *
+ * @author CS221
+ */
+public class IntBucketQueue {
+	private int[][] buckets = new int[16][];
+	private int[] head = new int[16]; //position of the next element to retrieve in each bucket
+	private int[] tail = new int[16]; //position after the last element stored in each bucket
+	private int lowest; //no element held has a lower priority
+	private int highest; //no element held has a higher priority
+	private int size;
+	private int peak; //most elements held at once
+	private int retreived; //priority of the element retrieved last
+
+	/**
+	 * @param element element to add
+	 * @param priority its priority; lowest is retrieved first
+	 */
+	public void store(int element, int priority) {
+		if (size == 0) {
+			lowest = priority;
+			highest = priority;
+		} else if (priority < lowest || priority > highest) {
+			int low = Math.min(priority, lowest);
+			int high = Math.max(priority, highest);
+			if ((long) high - low >= buckets.length) {
+				grow(low, high);
+			}
+			lowest = low;
+			highest = high;
+		}
+		int b = priority & (buckets.length - 1);
+		if (buckets[b] == null) {
+			buckets[b] = new int[16];
+		} else if (tail[b] == buckets[b].length) {
+			buckets[b] = Arrays.copyOf(buckets[b], buckets[b].length * 2);
+		}
+		buckets[b][tail[b]++] = element;
+		size++;
+		peak = Math.max(peak, size);
+	}
+
+	/**
+	 * @return the element stored first among those of the lowest priority
+	 * @throws NoSuchElementException if empty
+	 */
+	public int retreive() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		int b = lowest & (buckets.length - 1);
+		while (head[b] == tail[b]) {
+			lowest++;
+			b = lowest & (buckets.length - 1);
+		}
+		int element = buckets[b][head[b]++];
+		retreived = lowest;
+		if (head[b] == tail[b]) {
+			head[b] = 0; //emptied, so its array is reused from the start
+			tail[b] = 0;
+		}
+		size--;
+		return element;
+	}
+
+	/** @return priority the element retrieved last was stored with */
+	public int lastPriority() {
+		return retreived;
+	}
+
+	/** @return true if no elements are held */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/** @return number of elements held */
+	public int size() {
+		return size;
+	}
+
+	/** @return most elements held at once */
+	public int peakSize() {
+		return peak;
+	}
+
+	/** replaces the ring with one long enough for priorities low to high, moving every bucket held */
+	private void grow(int low, int high) {
+		int length = buckets.length;
+		while ((long) high - low >= length) {
+			length *= 2;
+		}
+		int[][] grownBuckets = new int[length][];
+		int[] grownHead = new int[length];
+		int[] grownTail = new int[length];
+		for (long p = lowest; p <= highest; p++) {
+			int from = (int) p & (buckets.length - 1);
+			int to = (int) p & (length - 1);
+			grownBuckets[to] = buckets[from];
+			grownHead[to] = head[from];
+			grownTail[to] = tail[from];
+		}
+		buckets = grownBuckets;
+		head = grownHead;
+		tail = grownTail;
+	}
+}
@@ -0,0 +1,214 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+
+/**
+ * Finds one shortest trace on a CircuitBoard with Jump Point Search adapted
+ * to four-connected grids, where every step costs the same.
+ *
+ * Many shortest traces differ only in the order of their moves. Search
+ * follows just one of each such family - horizontal moves before vertical
+ * ones wherever the board allows - so it can jump along straight lines
+ * without stopping at each cell. A vertical jump stops where a sideways move
+ * becomes possible that was blocked one cell back (a forced neighbor), and a
+ * horizontal jump stops wherever a vertical jump from it would stop. Only
+ * the cells where jumps stop, the jump points, are expanded, best-first by
+ * length plus Manhattan distance to the end, so the first complete trace is
+ * a shortest one. Its straight segments are then filled back in cell by cell.
+ *
+ * @author CS221
+ */
+public class JumpPointSearch {
+	private final CircuitBoard board;
+	private final int endRow;
+	private final int endCol;
+	private final ArrayList<TraceState> traces = new ArrayList<TraceState>();
+	private int generated; //jump points stored
+	private int expanded; //jump points whose jumps were followed
+	private long scanned; //cells stepped over by jumps
+	private int peakHeld; //most jump points waiting to be expanded at once
+
+	/** Searches board for one shortest trace
+	 * @param board board to search
+	 */
+	public JumpPointSearch(CircuitBoard board) {
+		this.board = board;
+		endRow = board.getEndingCell() / board.numCols();
+		endCol = board.getEndingCell() % board.numCols();
+		int start = board.getStartingCell();
+		int[] bestLength = new int[2 * board.numRows() * board.numCols()]; //per cell and axis arrived on, 0 if none yet
+		Storage<JumpPoint> open = Storage.getPriorityInstance(new EstimateOrder());
+		open.store(new JumpPoint(null, start / board.numCols(), start % board.numCols(), 0, 0, 0));
+		generated++;
+		while (!open.isEmpty()) {
+			JumpPoint point = open.retreive();
+			if (point.parent != null && isComplete(point.row, point.col)) {
+				traces.add(fill(point));
+				break;
+			}
+			int slot = 2 * (point.row * board.numCols() + point.col) + (point.dr != 0 ? 1 : 0);
+			if (point.parent != null) {
+				if (bestLength[slot] != 0 && bestLength[slot] <= point.length) {
+					continue;
+				}
+				bestLength[slot] = point.length;
+			}
+			expanded++;
+			for (int d = 0; d < 4; d++) {
+				int dr = DistanceField.DROW[d];
+				int dc = DistanceField.DCOL[d];
+				if (isSuccessor(point, dr, dc)) {
+					JumpPoint next = jump(point, dr, dc);
+					if (next != null) {
+						open.store(next);
+						generated++;
+					}
+				}
+			}
+		}
+		peakHeld = open.peakSize();
+	}
+
+	/** @return one shortest trace, or none if the components cannot be connected */
+	public ArrayList<TraceState> getTraces() {
+		return traces;
+	}
+
+	/** @return number of jump points stored */
+	public int jumpPointsGenerated() {
+		return generated;
+	}
+
+	/** @return number of jump points expanded */
+	public int jumpPointsExpanded() {
+		return expanded;
+	}
+
+	/** @return most jump points waiting to be expanded at once */
+	public int widestFrontier() {
+		return peakHeld;
+	}
+
+	/** @return number of cells jumps stepped over */
+	public long cellsScanned() {
+		return scanned;
+	}
+
+	/**
+	 * Pruning rule: the starting component tries every direction; a point
+	 * reached horizontally goes on or turns vertically; a point reached
+	 * vertically goes on, and turns only toward a forced neighbor.
+	 * @return true if the search should jump from point in direction dr, dc
+	 */
+	private boolean isSuccessor(JumpPoint point, int dr, int dc) {
+		if (point.parent == null) {
+			return true;
+		}
+		if (point.dr == 0) {
+			return dc != -point.dc;
+		}
+		if (dc == 0) {
+			return dr == point.dr;
+		}
+		return isForced(point.row, point.col, point.dr, dc);
+	}
+
+	/** @return true if moving vertically by dr into row, col leaves a move by dc open that was blocked one row back */
+	private boolean isForced(int row, int col, int dr, int dc) {
+		return board.isOpen(row, col + dc) && !board.isOpen(row - dr, col + dc);
+	}
+
+	/** @return the next jump point from point in direction dr, dc, or null if the jump runs into a wall */
+	private JumpPoint jump(JumpPoint point, int dr, int dc) {
+		int row = point.row;
+		int col = point.col;
+		while (true) {
+			row += dr;
+			col += dc;
+			if (!board.isOpen(row, col)) {
+				return null;
+			}
+			scanned++;
+			if (isComplete(row, col)) {
+				break;
+			}
+			if (dr != 0) {
+				if (isForced(row, col, dr, -1) || isForced(row, col, dr, 1)) {
+					break;
+				}
+			} else if (jumpsVertically(row, col, 1) || jumpsVertically(row, col, -1)) {
+				break;
+			}
+		}
+		int length = point.length + Math.abs(row - point.row) + Math.abs(col - point.col);
+		return new JumpPoint(point, row, col, dr, dc, length);
+	}
+
+	/** @return true if a vertical jump from row, col in direction dr would reach a jump point */
+	private boolean jumpsVertically(int row, int col, int dr) {
+		while (true) {
+			row += dr;
+			if (!board.isOpen(row, col)) {
+				return false;
+			}
+			scanned++;
+			if (isComplete(row, col) || isForced(row, col, dr, -1) || isForced(row, col, dr, 1)) {
+				return true;
+			}
+		}
+	}
+
+	/** @return true if a trace ending at row, col would be complete */
+	private boolean isComplete(int row, int col) {
+		return Math.abs(row - endRow) + Math.abs(col - endCol) == 1;
+	}
+
+	/** @return the trace through every jump point back to the start, with the cells between them filled in */
+	private TraceState fill(JumpPoint last) {
+		int[] cells = new int[last.length];
+		int n = last.length;
+		for (JumpPoint p = last; p.parent != null; p = p.parent) {
+			for (int row = p.row, col = p.col; row != p.parent.row || col != p.parent.col; row -= p.dr, col -= p.dc) {
+				cells[--n] = row * board.numCols() + col;
+			}
+		}
+		TraceState state = new TraceState(board, cells[0] / board.numCols(), cells[0] % board.numCols());
+		for (int i = 1; i < cells.length; i++) {
+			state = new TraceState(state, cells[i] / board.numCols(), cells[i] % board.numCols());
+		}
+		return state;
+	}
+
+	/** A cell where a jump stopped, with the direction it was reached in */
+	private static class JumpPoint {
+		private final JumpPoint parent; //null for the starting component
+		private final int row;
+		private final int col;
+		private final int dr;
+		private final int dc;
+		private final int length; //trace length from the start to here
+
+		private JumpPoint(JumpPoint parent, int row, int col, int dr, int dc, int length) {
+			this.parent = parent;
+			this.row = row;
+			this.col = col;
+			this.dr = dr;
+			this.dc = dc;
+			this.length = length;
+		}
+	}
+
+	/** Smallest estimated trace length first, and among equal estimates the longer trace so far */
+	private class EstimateOrder implements Comparator<JumpPoint> {
+		public int compare(JumpPoint a, JumpPoint b) {
+			int result = Integer.compare(estimate(a), estimate(b));
+			if (result == 0) {
+				result = Integer.compare(b.length, a.length);
+			}
+			return result;
+		}
+
+		private int estimate(JumpPoint p) {
+			return p.length + Math.abs(p.row - endRow) + Math.abs(p.col - endCol) - 1;
+		}
+	}
+}
@@ -0,0 +1,165 @@
+import java.io.FileNotFoundException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A board with any number of nets, each a pair of pins to be connected, as
+ * read from a text board file.
+ *
+ * The format is the CircuitBoard text format with more cell characters: any
+ * visible ASCII character other than 'O', 'X', 'T', their lower case forms
+ * and '#' is a pin, and the two cells holding the same character are the
+ * pins of one net, labelled by it. The '1' and '2' of a single-net board are
+ * read as one net labelled '1', so every CircuitBoard text file is also a
+ * MultiNetBoard file.
+ *
+ * Cells are referred to by packed index, row * numCols() + col. Nets are
+ * numbered in ASCII order of their labels.
+ *
+ * @author CS221
+ */
+public class MultiNetBoard {
+	private static final char OPEN = 'O';
+	private static final char CLOSED = 'X';
+	private static final char START = '1';
+	private static final char END = '2';
+	private static final String NOT_PINS = "OXToxt#";
+
+	private final int rows;
+	private final int cols;
+	private final BitSet open = new BitSet(); //packed index of each 'O' cell
+	private final char[] labels; //label of each net
+	private final int[] sources; //packed index of the first pin of each net
+	private final int[] sinks; //packed index of the second pin of each net
+
+	/**
+	 * @param filename text board file
+	 * @throws FileNotFoundException if the file does not exist or cannot be read
+	 * @throws InvalidFileFormatException if a cell is 'T', 'o', 'x', 't' or '#',
+	 *  or a pin label does not appear exactly twice
+	 */
+	public MultiNetBoard(final String filename) throws FileNotFoundException {
+		BoardFileReader reader = new BoardFileReader(filename);
+		rows = reader.numRows();
+		cols = reader.numCols();
+		final int[] first = new int[128];
+		final int[] second = new int[128];
+		Arrays.fill(first, -1);
+		Arrays.fill(second, -1);
+		reader.readCells(new BoardFileReader.CellHandler() {
+			public void cell(int row, int col, char c, int line, int column) {
+				if (c == OPEN) {
+					open.set(row * cols + col);
+				} else if (c != CLOSED) {
+					if (!isPinChar(c)) {
+						throw new InvalidFileFormatException(filename + ": line " + line + ", column " + column
+								+ ": '" + c + "' is not 'O', 'X' or a pin");
+					}
+					char label = (c == END) ? START : c;
+					int[] pins = (c == END || (c != START && first[label] >= 0)) ? second : first;
+					if (pins[label] >= 0) {
+						throw new InvalidFileFormatException(filename + ": line " + line + ", column " + column
+								+ ": too many '" + c + "' pins on board");
+					}
+					pins[label] = row * cols + col;
+				}
+			}
+		});
+		int nets = 0;
+		for (char label = 0; label < first.length; label++) {
+			if ((first[label] >= 0) != (second[label] >= 0)) {
+				throw new InvalidFileFormatException(filename + ": net '" + label + "' needs two pins");
+			}
+			if (first[label] >= 0) {
+				nets++;
+			}
+		}
+		labels = new char[nets];
+		sources = new int[nets];
+		sinks = new int[nets];
+		int net = 0;
+		for (char label = 0; label < first.length; label++) {
+			if (first[label] >= 0) {
+				labels[net] = label;
+				sources[net] = first[label];
+				sinks[net] = second[label];
+				net++;
+			}
+		}
+	}
+
+	/** @param c character to classify
+	 * @return true if c marks a pin: a visible ASCII character other than
+	 *  'O', 'X', 'T', their lower case forms and '#'
+	 */
+	public static boolean isPinChar(char c) {
+		return c > ' ' && c < 127 && NOT_PINS.indexOf(c) < 0;
+	}
+
+	/** @return number of rows */
+	public int numRows() {
+		return rows;
+	}
+
+	/** @return number of columns */
+	public int numCols() {
+		return cols;
+	}
+
+	/** @return number of cells */
+	public int size() {
+		return rows * cols;
+	}
+
+	/** @return number of nets */
+	public int numNets() {
+		return labels.length;
+	}
+
+	/** @param net net number
+	 * @return character marking the pins of net
+	 */
+	public char label(int net) {
+		return labels[net];
+	}
+
+	/** @param net net number
+	 * @return packed index of the first pin of net
+	 */
+	public int source(int net) {
+		return sources[net];
+	}
+
+	/** @param net net number
+	 * @return packed index of the second pin of net
+	 */
+	public int sink(int net) {
+		return sinks[net];
+	}
+
+	/** @param cell packed index
+	 * @return true if cell is 'O', so any net may route through it
+	 */
+	public boolean isOpen(int cell) {
+		return open.get(cell);
+	}
+
+	/**
+	 * @param cell packed index
+	 * @return character of cell as read, with '2' for the second pin of net '1'
+	 */
+	public char charAt(int cell) {
+		if (open.get(cell)) {
+			return OPEN;
+		}
+		for (int net = 0; net < labels.length; net++) {
+			if (sources[net] == cell) {
+				return labels[net];
+			}
+			if (sinks[net] == cell) {
+				return (labels[net] == START) ? END : labels[net];
+			}
+		}
+		return CLOSED;
+	}
+}
@@ -0,0 +1,315 @@
+import java.io.FileNotFoundException;
+import java.util.Comparator;
+
+/**
+ * Routes every net of a MultiNetBoard with PathFinder-style negotiated
+ * congestion: nets may at first share cells, and sharing is made steadily
+ * more expensive until each cell is used by at most one net.
+ *
+ * Each net is routed on its own by A* over the grid, as in CircuitTracer's
+ * best-first mode, with a cost for entering each open cell instead of a
+ * count of cells. The cost grows with the number of other nets using the
+ * cell (present congestion, weighted more heavily every iteration) and with
+ * the number of past iterations in which the cell was overused (history).
+ * After the first pass over all nets, each iteration rips up and reroutes
+ * only the nets that still share a cell, so the work per iteration follows
+ * the conflicts rather than the net count, and no net orderings are tried.
+ *
+ * A route is the list of packed cell indices strictly between a net's two
+ * pins, from the first pin to the second, and is empty for adjacent pins.
+ *
+ * @author CS221
+ */
+public class NetRouter {
+	/** default most routing passes, counting the first */
+	public static final int DEFAULT_ITERATIONS = 50;
+	private static final int BASE_COST = 4; //cost of an uncongested cell with no history, before SCALE
+	private static final int SCALE = 2; //present factor is in units of 1/SCALE
+	private static final long MAX_PRESENT = 1L << 24;
+
+	private final MultiNetBoard board;
+	private final int cols;
+	private final int[][] routes; //route of each net, null if the net cannot be routed at all
+	private final int[] occupancy; //nets routed through each cell
+	private final int[] history; //past iterations each cell was overused in
+	private long presentFactor = 1; //cost of each other net in a cell, in units of 1/SCALE
+	private final long[] cost; //cost of the best route to each cell in the current search
+	private final int[] parent; //previous cell on that route, -1 next to the first pin
+	private final int[] visited; //search number that last set cost and parent of each cell
+	private int searches;
+	private int iterations;
+	private int reroutes;
+	private long cellsExpanded;
+
+	/** launch the program
+	 * @param args optional leading options followed by one required argument:
+	 *  options: -i N most routing passes (default 50)
+	 *           -v to print routing statistics to stderr
+	 *  arg: input file name
+	 */
+	public static void main(String[] args) {
+		int maxIterations = DEFAULT_ITERATIONS;
+		boolean verbose = false;
+		int next = 0; //index of the next arg to read
+		try {
+			while (args.length - next > 1) {
+				String option = args[next++];
+				if (option.equals("-i")) {
+					maxIterations = Integer.parseInt(args[next++]);
+				} else if (option.equals("-v")) {
+					verbose = true;
+				} else {
+					throw new IllegalArgumentException(option);
+				}
+			}
+		} catch (RuntimeException e) {
+			printUsage();
+			System.exit(1);
+		}
+		if (args.length - next != 1 || maxIterations < 1) {
+			printUsage();
+			System.exit(1);
+		}
+		try {
+			long time = System.nanoTime();
+			NetRouter router = new NetRouter(new MultiNetBoard(args[next]), maxIterations);
+			time = System.nanoTime() - time;
+			System.out.print(router);
+			if (!router.isRouted()) {
+				System.out.println("No solution: " + router.unroutable() + " nets cannot be routed, "
+						+ router.conflicts() + " cells are shared.");
+			}
+			if (verbose) {
+				System.err.printf("%d nets: %d iterations, %d reroutes, %d cells expanded, %.3f ms%n",
+						router.board.numNets(), router.iterations(), router.reroutes(), router.cellsExpanded(), time / 1e6);
+			}
+		} catch (FileNotFoundException e) {
+			System.out.println(e.getMessage());
+			System.exit(1);
+		} catch (InvalidFileFormatException e) {
+			System.out.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/** Print instructions for running NetRouter from the command line. */
+	private static void printUsage() {
+		System.out.println("Usage: $ java NetRouter [-i iterations] [-v] file");
+	}
+
+	/**
+	 * Routes every net of board.
+	 * @param board board to route
+	 * @param maxIterations most routing passes, counting the first, at least 1
+	 */
+	public NetRouter(MultiNetBoard board, int maxIterations) {
+		this.board = board;
+		cols = board.numCols();
+		routes = new int[board.numNets()][];
+		occupancy = new int[board.size()];
+		history = new int[board.size()];
+		cost = new long[board.size()];
+		parent = new int[board.size()];
+		visited = new int[board.size()];
+		for (int net = 0; net < board.numNets(); net++) {
+			route(net);
+		}
+		iterations = 1;
+		while (iterations < maxIterations && conflicts() > 0) {
+			for (int cell = 0; cell < occupancy.length; cell++) {
+				if (occupancy[cell] > 1) {
+					history[cell]++;
+				}
+			}
+			presentFactor = Math.min(2 * presentFactor, MAX_PRESENT);
+			for (int net = 0; net < routes.length; net++) {
+				if (isShared(net)) {
+					ripUp(net);
+					route(net);
+					reroutes++;
+				}
+			}
+			iterations++;
+		}
+	}
+
+	/** @return true if every net is routed and no cell is used by two nets */
+	public boolean isRouted() {
+		return unroutable() == 0 && conflicts() == 0;
+	}
+
+	/** @param net net number
+	 * @return packed cell indices between the pins of net, first pin side first,
+	 *  or null if no route exists even through other nets
+	 */
+	public int[] getRoute(int net) {
+		return (routes[net] == null) ? null : routes[net].clone();
+	}
+
+	/** @return number of nets with no route at all */
+	public int unroutable() {
+		int count = 0;
+		for (int[] route : routes) {
+			if (route == null) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/** @return number of cells used by more than one net */
+	public int conflicts() {
+		int count = 0;
+		for (int n : occupancy) {
+			if (n > 1) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/** @return routing passes made, counting the first */
+	public int iterations() {
+		return iterations;
+	}
+
+	/** @return nets ripped up and routed again after the first pass */
+	public int reroutes() {
+		return reroutes;
+	}
+
+	/** @return cells expanded by every search so far */
+	public long cellsExpanded() {
+		return cellsExpanded;
+	}
+
+	/** @return true if net is routed through a cell another net also uses */
+	private boolean isShared(int net) {
+		if (routes[net] == null) {
+			return false;
+		}
+		for (int cell : routes[net]) {
+			if (occupancy[cell] > 1) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** removes net from every cell of its route */
+	private void ripUp(int net) {
+		for (int cell : routes[net]) {
+			occupancy[cell]--;
+		}
+		routes[net] = null;
+	}
+
+	/** finds the cheapest route for net given the other routes, and claims its cells */
+	private void route(int net) {
+		int source = board.source(net);
+		int sink = board.sink(net);
+		if (distance(source, sink) == 1) {
+			routes[net] = new int[0];
+			return;
+		}
+		searches++;
+		Storage<long[]> open = new Storage<long[]>(Storage.DataStructure.priority, new EstimateOrder());
+		for (int d = 0; d < 4; d++) {
+			relax(open, neighbor(source, d), -1, 0, sink);
+		}
+		while (!open.isEmpty()) {
+			long[] entry = open.retreive(); //estimate, cost, cell
+			int cell = (int) entry[2];
+			if (entry[1] > cost[cell]) {
+				continue; //a cheaper route to cell was found after this one was stored
+			}
+			cellsExpanded++;
+			if (distance(cell, sink) == 1) {
+				claim(net, cell);
+				return;
+			}
+			for (int d = 0; d < 4; d++) {
+				relax(open, neighbor(cell, d), cell, entry[1], sink);
+			}
+		}
+		routes[net] = null;
+	}
+
+	/** records a route to cell through from if it is the cheapest found so far */
+	private void relax(Storage<long[]> open, int cell, int from, long costSoFar, int sink) {
+		if (cell < 0 || !board.isOpen(cell)) {
+			return;
+		}
+		long c = costSoFar + (long) (BASE_COST + history[cell]) * (SCALE + presentFactor * occupancy[cell]);
+		if (visited[cell] == searches && cost[cell] <= c) {
+			return;
+		}
+		visited[cell] = searches;
+		cost[cell] = c;
+		parent[cell] = from;
+		long estimate = c + (long) (distance(cell, sink) - 1) * BASE_COST * SCALE;
+		open.store(new long[] {estimate, c, cell});
+	}
+
+	/** builds the route of net ending at last from the parents of the current search */
+	private void claim(int net, int last) {
+		int length = 0;
+		for (int cell = last; cell >= 0; cell = parent[cell]) {
+			length++;
+		}
+		int[] route = new int[length];
+		for (int cell = last; cell >= 0; cell = parent[cell]) {
+			route[--length] = cell;
+			occupancy[cell]++;
+		}
+		routes[net] = route;
+	}
+
+	/** @return packed index of the neighbor of cell in DistanceField direction d, or -1 if off the board */
+	private int neighbor(int cell, int d) {
+		int row = cell / cols + DistanceField.DROW[d];
+		int col = cell % cols + DistanceField.DCOL[d];
+		if (row < 0 || row >= board.numRows() || col < 0 || col >= cols) {
+			return -1;
+		}
+		return row * cols + col;
+	}
+
+	/** @return Manhattan distance between two packed cells */
+	private int distance(int a, int b) {
+		return Math.abs(a / cols - b / cols) + Math.abs(a % cols - b % cols);
+	}
+
+	/**
+	 * Draws the board with each route in the label of its net, 'T' for net
+	 * '1', and '#' in any cell still used by more than one net.
+	 */
+	public String toString() {
+		char[] cells = new char[board.size()];
+		for (int cell = 0; cell < cells.length; cell++) {
+			cells[cell] = board.charAt(cell);
+		}
+		for (int net = 0; net < routes.length; net++) {
+			if (routes[net] != null) {
+				for (int cell : routes[net]) {
+					cells[cell] = (occupancy[cell] > 1) ? '#' : (board.label(net) == '1') ? 'T' : board.label(net);
+				}
+			}
+		}
+		StringBuilder str = new StringBuilder();
+		for (int cell = 0; cell < cells.length; cell++) {
+			str.append(cells[cell]).append(' ');
+			if (cell % cols == cols - 1) {
+				str.append('\n');
+			}
+		}
+		return str.toString();
+	}
+
+	/** Lowest estimated total cost first */
+	private static class EstimateOrder implements Comparator<long[]> {
+		public int compare(long[] a, long[] b) {
+			return Long.compare(a[0], b[0]);
+		}
+	}
+}
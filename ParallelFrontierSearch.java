@@ -0,0 +1,166 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Level-synchronous parallel version of the queue search in CircuitTracer.
+ *
+ * Each BFS level is a list of states. The level is split into ranges across a
+ * ForkJoinPool; each worker expands its range into its own buffers, and the
+ * buffers are joined back together in range order to form the next level.
+ * Because that is exactly the order a FIFO queue would produce, the traces
+ * found, and the order they are found in, match the sequential queue search.
+ * Workers note which of the states they generate are complete, and the
+ * search stops at the first level that holds one, before expanding it, since
+ * every later trace is longer.
+ *
+ * Each instance keeps one pool for all its searches: the common pool when
+ * the parallelism asked for is the common pool's, or else a pool of its own,
+ * whose idle workers exit by themselves. shared() hands out one instance per
+ * parallelism, so repeated searches reuse the same workers.
+ *
+ * @author CS221
+ */
+public class ParallelFrontierSearch {
+	/** ranges at or below this many states are expanded without splitting further */
+	private static final int MIN_SPLIT = 256;
+	/** instances handed out by shared(), by parallelism */
+	private static final ConcurrentHashMap<Integer, ParallelFrontierSearch> SHARED = new ConcurrentHashMap<Integer, ParallelFrontierSearch>();
+
+	private final int parallelism;
+	private final ForkJoinPool pool;
+
+	/** @param parallelism number of worker threads to use, at least 1 */
+	public ParallelFrontierSearch(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+		}
+		this.parallelism = parallelism;
+		pool = (parallelism == ForkJoinPool.getCommonPoolParallelism()) ? ForkJoinPool.commonPool() : new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * @param parallelism number of worker threads to use, at least 1
+	 * @return an instance for parallelism, the same one on every call
+	 */
+	public static ParallelFrontierSearch shared(int parallelism) {
+		return SHARED.computeIfAbsent(parallelism, ParallelFrontierSearch::new);
+	}
+
+	/** Finds all shortest traces on board
+	 * @param board board to search
+	 * @return shortest complete traces, in queue search order; empty if there are none
+	 */
+	public ArrayList<TraceState> search(CircuitBoard board) {
+		return search(board, new SearchStats("-p", board));
+	}
+
+	/** Finds all shortest traces on board, counting states as it goes
+	 * @param board board to search
+	 * @param stats receives the states generated, expanded and held per level
+	 * @return shortest complete traces, in queue search order; empty if there are none
+	 */
+	public ArrayList<TraceState> search(CircuitBoard board, SearchStats stats) {
+		return search(board, stats, 0);
+	}
+
+	/** Finds the first shortest traces on board, counting states as it goes
+	 * @param board board to search
+	 * @param stats receives the states generated, expanded and held per level
+	 * @param limit most traces to return, or 0 for all of them
+	 * @return first shortest complete traces, in queue search order; empty if there are none
+	 */
+	public ArrayList<TraceState> search(CircuitBoard board, SearchStats stats, long limit) {
+		List<TraceState> level = new ArrayList<TraceState>();
+		int start = board.getStartingCell();
+		for (int d = 0; d < 4; d++) {
+			int row = start / board.numCols() + DistanceField.DROW[d];
+			int col = start % board.numCols() + DistanceField.DCOL[d];
+			if (board.isOpen(row, col)) {
+				level.add(new TraceState(board, row, col));
+			}
+		}
+		stats.addGenerated(level.size());
+		boolean complete = false; //level holds a complete trace
+		for (TraceState state : level) {
+			complete |= state.isComplete();
+		}
+		int depth = 1;
+		while (!level.isEmpty()) {
+			stats.notePeakHeld(level.size());
+			TraceEvents.level(board.numRows(), board.numCols(), depth++, level.size());
+			if (complete) {
+				ArrayList<TraceState> traces = new ArrayList<TraceState>();
+				for (int i = 0; i < level.size() && (limit == 0 || traces.size() < limit); i++) {
+					if (level.get(i).isComplete()) {
+						traces.add(level.get(i));
+					}
+				}
+				stats.addPruned(level.size() - traces.size()); //this level is never expanded
+				return traces;
+			}
+			int split = Math.max(MIN_SPLIT, level.size() / (parallelism * 4));
+			Frontier next = pool.invoke(new Expand(level, 0, level.size(), split));
+			stats.addExpanded(level.size());
+			stats.addGenerated(next.states.size());
+			level = next.states;
+			complete = next.complete;
+		}
+		return new ArrayList<TraceState>();
+	}
+
+	/** The result of expanding part of a level: the states of the next level, and whether any is complete */
+	private static class Frontier {
+		private final ArrayList<TraceState> states = new ArrayList<TraceState>();
+		private boolean complete;
+
+		/** appends other after this, keeping level order */
+		private Frontier append(Frontier other) {
+			states.addAll(other.states);
+			complete |= other.complete;
+			return this;
+		}
+	}
+
+	/** Expands states [from, to) of a level, splitting the range in half while it is large */
+	@SuppressWarnings("serial")
+	private static class Expand extends RecursiveTask<Frontier> {
+		private final List<TraceState> level;
+		private final int from;
+		private final int to;
+		private final int split;
+
+		private Expand(List<TraceState> level, int from, int to, int split) {
+			this.level = level;
+			this.from = from;
+			this.to = to;
+			this.split = split;
+		}
+
+		protected Frontier compute() {
+			if (to - from > split) {
+				int mid = (from + to) >>> 1;
+				Expand right = new Expand(level, mid, to, split);
+				right.fork();
+				Frontier left = new Expand(level, from, mid, split).compute();
+				return left.append(right.join());
+			}
+			Frontier result = new Frontier();
+			for (int i = from; i < to; i++) {
+				TraceState state = level.get(i);
+				for (int d = 0; d < 4; d++) { //below, above, left, right - same order as CircuitTracer
+					int row = state.getRow() + DistanceField.DROW[d];
+					int col = state.getCol() + DistanceField.DCOL[d];
+					if (state.isOpen(row, col)) {
+						TraceState next = new TraceState(state, row, col);
+						result.states.add(next);
+						result.complete |= next.isComplete();
+					}
+				}
+			}
+			return result;
+		}
+	}
+}
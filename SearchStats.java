@@ -0,0 +1,147 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Counters and timings for one run of a CircuitTracer search, printed as a
+ * short summary for -v or as a single line of JSON for -j.
+ *
+ * For the Storage-based and parallel queue modes a state is a partial trace.
+ * For -d and -b, which grow distance layers instead, a state is a cell
+ * reached by a layer, and the peak held is the largest single layer.
+ * Allocation is measured on the calling thread only, so the work of
+ * parallel queue workers is not included.
+ *
+ * @author CS221
+ */
+public class SearchStats {
+	private final String mode;
+	private final int rows;
+	private final int cols;
+	private long generated; //states created
+	private long expanded; //states whose neighbors were generated
+	private long pruned; //states dropped without being expanded
+	private long peakHeld; //most states waiting to be expanded at once
+	private long traces; //complete traces found
+	private long parseNanos;
+	private long searchNanos;
+	private long printNanos;
+	private long allocatedBytes = -1; //-1 if the JVM cannot measure it
+
+	/**
+	 * @param mode search mode flag
+	 * @param board board being searched
+	 */
+	public SearchStats(String mode, CircuitBoard board) {
+		this.mode = mode;
+		rows = board.numRows();
+		cols = board.numCols();
+	}
+
+	/** @param n states created */
+	public void addGenerated(long n) {
+		generated += n;
+	}
+
+	/** @param n states expanded */
+	public void addExpanded(long n) {
+		expanded += n;
+	}
+
+	/** @param n states dropped without being expanded */
+	public void addPruned(long n) {
+		pruned += n;
+	}
+
+	/** @param held states currently waiting to be expanded */
+	public void notePeakHeld(long held) {
+		peakHeld = Math.max(peakHeld, held);
+	}
+
+	/** @param n complete traces found */
+	public void setTraces(long n) {
+		traces = n;
+	}
+
+	/** @param nanos time spent reading the board */
+	public void setParseNanos(long nanos) {
+		parseNanos = nanos;
+	}
+
+	/** @param nanos time spent searching */
+	public void setSearchNanos(long nanos) {
+		searchNanos = nanos;
+	}
+
+	/** @param nanos time spent building and printing traces */
+	public void setPrintNanos(long nanos) {
+		printNanos = nanos;
+	}
+
+	/** @param bytes bytes allocated by the run, -1 if unknown */
+	public void setAllocatedBytes(long bytes) {
+		allocatedBytes = bytes;
+	}
+
+	/** @return states created */
+	public long getGenerated() {
+		return generated;
+	}
+
+	/** @return states expanded */
+	public long getExpanded() {
+		return expanded;
+	}
+
+	/** @return states dropped without being expanded */
+	public long getPruned() {
+		return pruned;
+	}
+
+	/** @return most states waiting to be expanded at once */
+	public long getPeakHeld() {
+		return peakHeld;
+	}
+
+	/** @return complete traces found */
+	public long getTraces() {
+		return traces;
+	}
+
+	/**
+	 * @return bytes allocated so far by the current thread, or -1 if the JVM
+	 *  cannot measure it; take the difference of two calls to measure a span
+	 */
+	public static long threadAllocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+			if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+				return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return String.format("mode %s on %dx%d board%n"
+				+ "  states: %d generated, %d expanded, %d pruned, peak %d held%n"
+				+ "  traces: %d found%n"
+				+ "  time:   %.3f ms parse, %.3f ms search, %.3f ms print%n"
+				+ "  memory: %s allocated",
+				mode, rows, cols, generated, expanded, pruned, peakHeld, traces,
+				parseNanos / 1e6, searchNanos / 1e6, printNanos / 1e6,
+				(allocatedBytes < 0) ? "unknown bytes" : allocatedBytes + " bytes");
+	}
+
+	/** @return these stats as one line of JSON, times in nanoseconds and unknown allocation as -1 */
+	public String toJson() {
+		return "{\"mode\":\"" + mode + "\",\"rows\":" + rows + ",\"cols\":" + cols
+				+ ",\"generated\":" + generated + ",\"expanded\":" + expanded + ",\"pruned\":" + pruned
+				+ ",\"peakHeld\":" + peakHeld + ",\"traces\":" + traces
+				+ ",\"parseNanos\":" + parseNanos + ",\"searchNanos\":" + searchNanos + ",\"printNanos\":" + printNanos
+				+ ",\"allocatedBytes\":" + allocatedBytes + "}";
+	}
+}
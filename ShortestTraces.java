@@ -0,0 +1,345 @@
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * All shortest traces between the components of a CircuitBoard, found from
+ * BFS distance layers measured from both components rather than by storing
+ * every partial path.
+ *
+ * A cell lies on some shortest trace exactly when its distance from the start
+ * plus its distance from the end is one more than the shortest trace length.
+ * Those cells form a layered DAG, which is enough to count the traces exactly
+ * and to walk them one at a time without ever holding more than one path.
+ * Each cell on the DAG is labeled with its step along the traces through it,
+ * either up front or, when built from distances kept up to date elsewhere,
+ * by checking both distances as the DAG is walked.
+ *
+ * @author CS221
+ */
+public class ShortestTraces implements Iterable<TraceState> {
+	private final CircuitBoard board;
+	private final int length; //shortest trace length, 0 if there is none
+	private final int[] step; //position of each cell on the shortest traces through it, 0 if none; null if fromStart is used
+	private int[] cells; //cells with a step, in nondecreasing step order; found on demand if fromStart is used
+	private final int[] fromStart; //distance of each cell from the start, null if step is used
+	private final int[] fromEnd; //distance of each cell from the end, null if step is used
+	private BigInteger count; //computed on first call to count()
+	private long maxTraces = Long.MAX_VALUE; //most traces an iterator returns
+
+	/** Measures distance layers from both components of board
+	 * @param board board to search
+	 */
+	public ShortestTraces(CircuitBoard board) {
+		this(board, DistanceField.fromStart(board), DistanceField.fromEnd(board));
+	}
+
+	/** Uses distance layers that have already been measured
+	 * @param board board the fields were measured on
+	 * @param fromStart field measured from the starting component, fully expanded
+	 * @param fromEnd field measured from the ending component, fully expanded
+	 */
+	public ShortestTraces(CircuitBoard board, DistanceField fromStart, DistanceField fromEnd) {
+		this.board = board;
+		int cols = board.numCols();
+		int shortest = 0;
+		for (int i = 0; i < fromEnd.size(); i++) {
+			int row = fromEnd.cellAt(i) / cols;
+			int col = fromEnd.cellAt(i) % cols;
+			if (fromEnd.distance(row, col) != 1) {
+				break; //cells adjacent to the end come first in BFS order
+			}
+			int d = fromStart.distance(row, col);
+			if (d > 0 && (shortest == 0 || d < shortest)) {
+				shortest = d;
+			}
+		}
+		length = shortest;
+		step = new int[board.numRows() * cols];
+		int[] onTrace = new int[fromStart.size()];
+		int n = 0;
+		for (int i = 0; i < fromStart.size(); i++) {
+			int row = fromStart.cellAt(i) / cols;
+			int col = fromStart.cellAt(i) % cols;
+			int d = fromStart.distance(row, col);
+			if (d > length) {
+				break;
+			}
+			if (fromEnd.distance(row, col) == length + 1 - d) {
+				step[fromStart.cellAt(i)] = d;
+				onTrace[n++] = fromStart.cellAt(i);
+			}
+		}
+		cells = Arrays.copyOf(onTrace, n);
+		this.fromStart = null;
+		this.fromEnd = null;
+	}
+
+	/** Uses a shortest-trace DAG that has already been labeled, e.g. by BidirectionalSearch
+	 * @param board board the DAG was found on
+	 * @param length shortest trace length, 0 if there is none
+	 * @param step position of each cell (row * numCols + col) on the shortest traces through it, 0 if none
+	 * @param cells every cell with a step, in nondecreasing step order
+	 */
+	ShortestTraces(CircuitBoard board, int length, int[] step, int[] cells) {
+		this(board, length, step, cells, null, null);
+	}
+	
+	private ShortestTraces(CircuitBoard board, int length, int[] step, int[] cells, int[] fromStart, int[] fromEnd) {
+		this.board = board;
+		this.length = length;
+		this.step = step;
+		this.cells = cells;
+		this.fromStart = fromStart;
+		this.fromEnd = fromEnd;
+	}
+
+	/**
+	 * Uses per-cell distances that are kept up to date elsewhere, e.g. by
+	 * IncrementalTracer. Nothing is copied or labeled up front; the arrays are
+	 * read as the DAG is walked, so the result is only valid until they change.
+	 * @param board board the distances were measured on
+	 * @param length shortest trace length, 0 if there is none
+	 * @param fromStart distance of each cell (row * numCols + col) from the start, 0 if not reachable
+	 * @param fromEnd distance of each cell from the end, 0 if not reachable
+	 * @return shortest traces through the cells the distances agree on
+	 */
+	static ShortestTraces fromDistances(CircuitBoard board, int length, int[] fromStart, int[] fromEnd) {
+		return new ShortestTraces(board, length, null, null, fromStart, fromEnd);
+	}
+
+	/** @return true if row, col is on at least one shortest trace, at step distance of it */
+	private boolean onTrace(int row, int col, int distance) {
+		if (row < 0 || row >= board.numRows() || col < 0 || col >= board.numCols()) {
+			return false;
+		}
+		int cell = row * board.numCols() + col;
+		if (step != null) {
+			return step[cell] == distance;
+		}
+		return fromStart[cell] == distance && fromEnd[cell] == length + 1 - distance;
+	}
+
+	/** @return step of a cell known to be on the DAG */
+	int stepOf(int cell) {
+		return (step != null) ? step[cell] : fromStart[cell];
+	}
+
+	/**
+	 * @return every cell on the DAG in nondecreasing step order; when built from
+	 *  distances they are found on first use by walking back from the end one
+	 *  step at a time, so only cells on the DAG are visited
+	 */
+	int[] dagCells() {
+		if (cells == null) {
+			HashSet<Integer> seen = new HashSet<Integer>();
+			int[][] layers = new int[length + 1][];
+			int end = board.getEndingCell();
+			int[] layer = new int[4];
+			int n = 0;
+			for (int d = 0; d < 4; d++) {
+				int r = end / board.numCols() + DistanceField.DROW[d];
+				int c = end % board.numCols() + DistanceField.DCOL[d];
+				if (onTrace(r, c, length) && seen.add(r * board.numCols() + c)) {
+					layer[n++] = r * board.numCols() + c;
+				}
+			}
+			int total = n;
+			if (length > 0) {
+				layers[length] = Arrays.copyOf(layer, n);
+			}
+			for (int s = length; s > 1; s--) {
+				layer = new int[layers[s].length * 4];
+				n = 0;
+				for (int cell : layers[s]) {
+					for (int d = 0; d < 4; d++) {
+						int r = cell / board.numCols() + DistanceField.DROW[d];
+						int c = cell % board.numCols() + DistanceField.DCOL[d];
+						if (onTrace(r, c, s - 1) && seen.add(r * board.numCols() + c)) {
+							layer[n++] = r * board.numCols() + c;
+						}
+					}
+				}
+				layers[s - 1] = Arrays.copyOf(layer, n);
+				total += n;
+			}
+			cells = new int[total];
+			n = 0;
+			for (int s = 1; s <= length; s++) {
+				System.arraycopy(layers[s], 0, cells, n, layers[s].length);
+				n += layers[s].length;
+			}
+		}
+		return cells;
+	}
+
+	/** @return length of the shortest traces, or 0 if the components cannot be connected */
+	public int shortestLength() {
+		return length;
+	}
+
+	/** @return true if the components cannot be connected */
+	public boolean isEmpty() {
+		return length == 0;
+	}
+
+	/** @return exact number of distinct shortest traces */
+	public BigInteger count() {
+		if (count == null) {
+			try {
+				count = BigInteger.valueOf(countSmall());
+			} catch (ArithmeticException e) {
+				count = countBig();
+			}
+		}
+		return count;
+	}
+
+	/** counts paths through the DAG in longs, throwing ArithmeticException on overflow */
+	private long countSmall() {
+		long[] ways = new long[board.numRows() * board.numCols()];
+		long total = 0;
+		for (int cell : dagCells()) {
+			int row = cell / board.numCols();
+			int col = cell % board.numCols();
+			int d = stepOf(cell);
+			long w = (d == 1) ? 1 : 0;
+			for (int n = 0; n < 4; n++) {
+				int r = row + DistanceField.DROW[n];
+				int c = col + DistanceField.DCOL[n];
+				if (d > 1 && onTrace(r, c, d - 1)) {
+					w = Math.addExact(w, ways[r * board.numCols() + c]);
+				}
+			}
+			ways[cell] = w;
+			if (d == length) {
+				total = Math.addExact(total, w);
+			}
+		}
+		return total;
+	}
+
+	/** counts paths through the DAG in BigIntegers, holding only the counts of the previous and current steps;
+	 * package-private so ShortestTracesTester can check it on boards count() would count in longs */
+	BigInteger countBig() {
+		HashMap<Integer, BigInteger> previous = new HashMap<Integer, BigInteger>();
+		HashMap<Integer, BigInteger> current = new HashMap<Integer, BigInteger>();
+		BigInteger total = BigInteger.ZERO;
+		int currentStep = 0;
+		for (int cell : dagCells()) {
+			int row = cell / board.numCols();
+			int col = cell % board.numCols();
+			int d = stepOf(cell);
+			if (d != currentStep) {
+				previous = current; //the step before the previous one is dropped here
+				current = new HashMap<Integer, BigInteger>();
+				currentStep = d;
+			}
+			BigInteger w = (d == 1) ? BigInteger.ONE : BigInteger.ZERO;
+			for (int n = 0; n < 4; n++) {
+				int r = row + DistanceField.DROW[n];
+				int c = col + DistanceField.DCOL[n];
+				if (d > 1 && onTrace(r, c, d - 1)) {
+					w = w.add(previous.get(r * board.numCols() + c));
+				}
+			}
+			current.put(cell, w);
+			if (d == length) {
+				total = total.add(w);
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * @param maxTraces most traces to iterate over, at least 1
+	 * @return the same traces, of which iterators return only the first maxTraces;
+	 *  count() and shortestLength() still describe them all
+	 */
+	public ShortestTraces limit(long maxTraces) {
+		if (maxTraces < 1) {
+			throw new IllegalArgumentException("limit must be at least 1: " + maxTraces);
+		}
+		ShortestTraces limited = new ShortestTraces(board, length, step, cells, fromStart, fromEnd);
+		limited.count = count;
+		limited.maxTraces = maxTraces;
+		return limited;
+	}
+
+	/** @return iterator that builds each shortest trace on demand, in depth-first order */
+	public Iterator<TraceState> iterator() {
+		return new TraceIterator();
+	}
+
+	/**
+	 * Depth-first walk of the shortest-trace DAG. Level 0 is the starting
+	 * component and level k holds the k-th cell of the current trace. States
+	 * are persistent, so consecutive traces share their common prefix.
+	 */
+	private class TraceIterator implements Iterator<TraceState> {
+		private final int[] rowAt = new int[length + 1];
+		private final int[] colAt = new int[length + 1];
+		private final int[] nextDir = new int[length + 1]; //next neighbor to try from each level
+		private final TraceState[] states = new TraceState[length + 1];
+		private int level; //deepest level of the current partial trace
+		private TraceState next; //found but not yet returned
+		private long returned; //traces returned so far
+
+		public TraceIterator() {
+			rowAt[0] = board.getStartingCell() / board.numCols();
+			colAt[0] = board.getStartingCell() % board.numCols();
+			level = (length == 0) ? -1 : 0;
+		}
+
+		/** advances the walk to the next complete trace, or null when done */
+		private TraceState advance() {
+			if (returned == maxTraces) {
+				return null;
+			}
+			if (level == length) {
+				level--; //back off the trace returned last time
+			}
+			while (level >= 0) {
+				if (nextDir[level] == 4) {
+					level--;
+					continue;
+				}
+				int d = nextDir[level]++;
+				int r = rowAt[level] + DistanceField.DROW[d];
+				int c = colAt[level] + DistanceField.DCOL[d];
+				if (!onTrace(r, c, level + 1)) {
+					continue;
+				}
+				level++;
+				rowAt[level] = r;
+				colAt[level] = c;
+				nextDir[level] = 0;
+				states[level] = (level == 1) ? new TraceState(board, r, c) : new TraceState(states[level - 1], r, c);
+				if (level == length) {
+					return states[level];
+				}
+			}
+			return null;
+		}
+
+		public boolean hasNext() {
+			if (next == null) {
+				next = advance();
+			}
+			return next != null;
+		}
+
+		public TraceState next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			TraceState result = next;
+			next = null;
+			returned++;
+			return result;
+		}
+	}
+}
@@ -0,0 +1,183 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/**
+ * Test ShortestTraces against queue search (-q) on small boards.
+ * @author CS221
+ */
+public class ShortestTracesTester {
+	// initialized in constructor
+	private final boolean PRINT_ALL_TESTS;
+	private final boolean PRINT_FAILS_ONLY;
+	private final boolean PRINT_SECTION_SUMMARIES;
+
+	// named boards for use in tests, one row per line
+	private static final String[] BOARD_OPEN_3X3 = {"1 O O", "O O O", "O O 2"};
+	private static final String[] BOARD_OBSTACLES = {"O O O O O O", "O 1 X X O O", "O O O X O O", "O O O O 2 O", "O O O O O O"};
+	private static final String[] BOARD_ADJACENT = {"O O O", "O 1 2", "O O O"};
+	private static final String[] BOARD_ONE_ROW = {"1 O O O 2"};
+	private static final String[] BOARD_OPEN_5X6 = {"1 O O O O O", "O O O O O O", "O O O O O O", "O O O O O O", "O O O O O 2"};
+	private static final String[] BOARD_NO_PATH = {"1 O X O", "O O X O", "X X X O", "O O O 2"};
+	private static final String[] BOARD_WALLED_IN = {"X X X", "X 1 X", "X X X", "O O 2"};
+
+	private int passes = 0;
+	private int failures = 0;
+	private int total = 0;
+
+	private int secTotal = 0;
+	private int secPasses = 0;
+	private int secFails = 0;
+
+	/** @param args optional parameters <-a|-f> <-s> */
+	public static void main(String[] args) {
+		ShortestTracesTester tester = new ShortestTracesTester(args);
+		tester.runTests();
+	}
+
+	/** configure output based on command line args
+	 * 	print all tests: -a
+	 *  print failed tests only: -f (-f overrules -a and filters all passed tests)
+	 *  print section summaries: -s (can be combined with -a or -f)
+	 *  print only final summary: no args
+	 */
+	public ShortestTracesTester(String[] args) {
+		boolean all = false;
+		boolean fails = args.length == 0;
+		boolean sections = false;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-a")) all = true;
+			if (args[i].equals("-f")) fails = true;
+			if (args[i].equals("-s")) sections = true;
+		}
+		PRINT_ALL_TESTS = all;
+		PRINT_FAILS_ONLY = fails;
+		PRINT_SECTION_SUMMARIES = sections;
+	}
+
+	/** Run tests on each board, then print a final summary */
+	private void runTests() {
+		testBoard("open3x3", BOARD_OPEN_3X3);
+		testBoard("obstacles", BOARD_OBSTACLES);
+		testBoard("adjacent", BOARD_ADJACENT);
+		testBoard("oneRow", BOARD_ONE_ROW);
+		testBoard("open5x6", BOARD_OPEN_5X6);
+		testBoard("noPath", BOARD_NO_PATH);
+		testBoard("walledIn", BOARD_WALLED_IN);
+		printFinalSummary();
+	}
+
+	/**
+	 * Runs every test on one board, as a section.
+	 * @param name board name for test descriptions
+	 * @param rows rows of the board
+	 */
+	private void testBoard(String name, String[] rows) {
+		CircuitBoard board;
+		try {
+			board = newBoard(rows);
+		} catch (IOException e) {
+			printTest(name + "_read", false);
+			return;
+		}
+		ShortestTraces traces = new ShortestTraces(board);
+		ArrayList<TraceState> queued = new ArrayList<TraceState>();
+		for (TraceState t : CircuitTracer.search(board, "-q", 1)) {
+			queued.add(t);
+		}
+		printTest(name + "_isEmpty", traces.isEmpty() == queued.isEmpty());
+		printTest(name + "_count", traces.count().equals(BigInteger.valueOf(queued.size())));
+		printTest(name + "_countBig", traces.countBig().equals(traces.count()));
+		printTest(name + "_shortestLength", testShortestLength(traces, queued));
+		printTest(name + "_iterator", testIterator(traces, queued));
+		if (PRINT_SECTION_SUMMARIES) {
+			printSectionSummary(name);
+		}
+	}
+
+	/** @return true if every trace -q found has the length traces reports, or both found none */
+	private boolean testShortestLength(ShortestTraces traces, ArrayList<TraceState> queued) {
+		if (queued.isEmpty()) {
+			return traces.shortestLength() == 0;
+		}
+		for (TraceState t : queued) {
+			if (t.pathLength() != traces.shortestLength()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** @return true if traces iterates over the same paths as -q found, each once */
+	private boolean testIterator(ShortestTraces traces, ArrayList<TraceState> queued) {
+		HashSet<String> expected = new HashSet<String>();
+		for (TraceState t : queued) {
+			expected.add(t.getPath().toString());
+		}
+		HashSet<String> found = new HashSet<String>();
+		for (TraceState t : traces) {
+			if (!found.add(t.getPath().toString())) {
+				return false; //returned twice
+			}
+		}
+		return found.equals(expected);
+	}
+
+	/**
+	 * Writes rows to a temporary board file and reads it back.
+	 * @param rows rows of the board
+	 * @return the board
+	 * @throws IOException if the file cannot be written
+	 */
+	private static CircuitBoard newBoard(String[] rows) throws IOException {
+		File file = File.createTempFile("tester", ".txt");
+		file.deleteOnExit();
+		PrintWriter out = new PrintWriter(file);
+		try {
+			out.println(rows.length + " " + (rows[0].length() + 1) / 2);
+			for (String row : rows) {
+				out.println(row);
+			}
+		} finally {
+			out.close();
+		}
+		return new CircuitBoard(file.getPath());
+	}
+
+	/** Print test results in a consistent format
+	 * @param testDesc description of the test
+	 * @param result indicates if the test passed or failed
+	 */
+	private void printTest(String testDesc, boolean result) {
+		total++;
+		if (result) {
+			passes++;
+		} else {
+			failures++;
+		}
+		if (PRINT_ALL_TESTS || PRINT_FAILS_ONLY) {
+			if (!PRINT_FAILS_ONLY || !result) {
+				System.out.printf("%-48s\t%s\n", testDesc, (result ? "   PASS" : "***FAIL***"));
+			}
+		}
+	}
+
+	/** Print a final summary */
+	private void printFinalSummary() {
+		System.out.printf("\nTotal Tests: %d,  Passed: %d (%.1f%%),  Failed: %d\n", total, passes, 100.0*passes/total, failures);
+	}
+
+	/** Print a section summary */
+	private void printSectionSummary(String secLabel) {
+		secTotal = total - secTotal;
+		secPasses = passes - secPasses;
+		secFails = failures - secFails;
+		System.out.printf("\n%s Tests: %d,  Passed: %d,  Failed: %d\n\n", secLabel, secTotal, secPasses, secFails);
+		secTotal = total; //reset for next section
+		secPasses = passes;
+		secFails = failures;
+	}
+}
@@ -0,0 +1,188 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+
+/**
+ * A stack or queue that holds at most a fixed number of elements in memory
+ * and writes the rest to segment files on disk, each written and read back
+ * whole and in order, so disk access is sequential.
+ *
+ * As a queue, elements are kept as a head being read from, a tail being
+ * written to and, between them, full segments on disk in the order they were
+ * written. As a stack, the bottom half of the elements in memory is written
+ * out as a segment whenever memory is full, and the most recent segment is
+ * read back once memory empties.
+ *
+ * Segment files are deleted as soon as they are read back or the store is
+ * closed. Nothing is registered per file for deletion at exit, since such
+ * registrations are never released and would pile up in a long-running JVM;
+ * temporaryDirectory() gives a directory that is cleared at exit instead.
+ *
+ * Backs the disk DataStructures of Storage.
+ *
+ * @author CS221
+ */
+public class SpillingStore<T> {
+	private final boolean lifo;
+	private final int segmentSize; //elements per segment file
+	private final Storage.Codec<T> codec;
+	private final File directory;
+	private final ArrayDeque<T> head = new ArrayDeque<T>(); //queue: oldest elements; stack: every element in memory, newest last
+	private final ArrayDeque<T> tail = new ArrayDeque<T>(); //queue only: newest elements
+	private final ArrayDeque<File> segments = new ArrayDeque<File>(); //queue: oldest first; stack: newest last
+	private long spilled; //elements in segment files
+	private static File temporary; //made on first call to temporaryDirectory()
+	private static boolean exiting; //set as the JVM exits, after which no segment file is made
+
+	/**
+	 * @param lifo true for a stack, false for a queue
+	 * @param memoryCap most elements to hold in memory, at least 2
+	 * @param codec writes and reads elements
+	 * @param directory directory for segment files
+	 */
+	public SpillingStore(boolean lifo, int memoryCap, Storage.Codec<T> codec, File directory) {
+		if (memoryCap < 2) {
+			throw new IllegalArgumentException("memory cap must be at least 2: " + memoryCap);
+		}
+		this.lifo = lifo;
+		segmentSize = memoryCap / 2;
+		this.codec = codec;
+		this.directory = directory;
+	}
+
+	/**
+	 * @return a directory of its own under java.io.tmpdir for segment files,
+	 *  made on first call; it and any segment files still in it, e.g. from a
+	 *  search cut short, are deleted when the JVM exits
+	 * @throws UncheckedIOException if the directory cannot be made
+	 */
+	public static synchronized File temporaryDirectory() {
+		if (temporary == null) {
+			try {
+				final File directory = Files.createTempDirectory("storage").toFile();
+				Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+					synchronized (SpillingStore.class) {
+						exiting = true; //so no file is made after the directory is listed
+					}
+					File[] left = directory.listFiles();
+					if (left != null) {
+						for (File f : left) {
+							f.delete();
+						}
+					}
+					directory.delete();
+				}));
+				temporary = directory;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return temporary;
+	}
+
+	/** @param element element to add */
+	public void store(T element) {
+		if (lifo) {
+			head.addLast(element);
+			if (head.size() >= 2 * segmentSize) {
+				segments.addLast(spill(head, segmentSize));
+			}
+		} else if (segments.isEmpty() && tail.isEmpty() && head.size() < segmentSize) {
+			head.addLast(element);
+		} else {
+			tail.addLast(element);
+			if (tail.size() >= segmentSize) {
+				segments.addLast(spill(tail, tail.size()));
+			}
+		}
+	}
+
+	/** @return next element, newest first for a stack and oldest first for a queue */
+	public T retreive() {
+		if (head.isEmpty()) {
+			if (!segments.isEmpty()) {
+				load(lifo ? segments.removeLast() : segments.removeFirst());
+			} else if (!lifo) {
+				head.addAll(tail);
+				tail.clear();
+			}
+		}
+		return lifo ? head.removeLast() : head.removeFirst();
+	}
+
+	/** @return number of elements, in memory and on disk */
+	public int size() {
+		return (int) Math.min(Integer.MAX_VALUE, head.size() + tail.size() + spilled);
+	}
+
+	/** @return true if there are no elements */
+	public boolean isEmpty() {
+		return head.isEmpty() && tail.isEmpty() && segments.isEmpty();
+	}
+
+	/** Deletes any segment files left; the store is empty afterward */
+	public void close() {
+		for (File f : segments) {
+			f.delete();
+		}
+		segments.clear();
+		head.clear();
+		tail.clear();
+		spilled = 0;
+	}
+
+	/** writes the first n elements of from to a new segment file, oldest first, and removes them */
+	private File spill(ArrayDeque<T> from, int n) {
+		try {
+			File file = newSegment(directory);
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+			try {
+				out.writeInt(n);
+				for (int i = 0; i < n; i++) {
+					codec.write(from.removeFirst(), out);
+				}
+			} finally {
+				out.close();
+			}
+			spilled += n;
+			return file;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/** @return a new empty segment file in directory */
+	private static synchronized File newSegment(File directory) throws IOException {
+		if (exiting) {
+			throw new IOException("JVM is exiting");
+		}
+		return File.createTempFile("storage", ".seg", directory);
+	}
+
+	/** reads a segment file into head, oldest first, and deletes it */
+	private void load(File file) {
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+			try {
+				int n = in.readInt();
+				for (int i = 0; i < n; i++) {
+					head.addLast(codec.read(in));
+				}
+				spilled -= n;
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		file.delete();
+	}
+}
@@ -1,4 +1,10 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.Comparator;
 import java.util.LinkedList;
+import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Stack;
 
@@ -13,17 +19,34 @@ import java.util.Stack;
 public class Storage<T> 
 {
 	/** supported underlying data structures for Storage to use */
-	public static enum DataStructure {stack, queue}
+	public static enum DataStructure {stack, queue, priority, diskStack, diskQueue}
 	/** the data structure chosen for this Storage to use */
 	private DataStructure dataStructure;
 	/** the data structures - only one will be instantiated and used  */
 	private Queue<T> queue;
 	private Stack<T> stack;
+	private PriorityQueue<Entry<T>> priorityQueue;
+	private SpillingStore<T> spillingStore;
+	/** number of elements stored so far, breaks ties between equal priorities */
+	private long stored;
+	/** largest number of elements held at once */
+	private int peakSize;
 	
 	/** Constructor
 	 * @param dataStructure choice of DataStructures 
 	 */
 	public Storage(DataStructure dataStructure) 
+	{
+		this(dataStructure, null);
+	}
+	
+	/** Constructor
+	 * @param dataStructure choice of DataStructures 
+	 * @param order ordering for the priority DataStructure, smallest first;
+	 *  null uses the natural ordering of T. Equal elements are retrieved in
+	 *  the order they were stored, so runs are reproducible.
+	 */
+	public Storage(DataStructure dataStructure, final Comparator<? super T> order) 
 	{
 		this.dataStructure = dataStructure;
 		switch (this.dataStructure) 
@@ -33,6 +56,72 @@ public class Storage<T>
 				break;
 			case queue:
 				queue = new LinkedList<T>();
+				break;
+			case priority:
+				priorityQueue = new PriorityQueue<Entry<T>>(11, new Comparator<Entry<T>>() {
+					@SuppressWarnings("unchecked")
+					public int compare(Entry<T> a, Entry<T> b) {
+						int result = (order == null) 
+								? ((Comparable<? super T>) a.element).compareTo(b.element)
+								: order.compare(a.element, b.element);
+						return (result != 0) ? result : Long.compare(a.sequence, b.sequence);
+					}
+				});
+				break;
+			default:
+				throw new IllegalArgumentException(dataStructure + " needs a memory cap and a Codec");
+		}
+	}
+	
+	/** Constructor for the disk DataStructures, which hold at most memoryCap
+	 *  elements in memory and write the rest to segment files in directory
+	 * @param dataStructure diskStack or diskQueue
+	 * @param memoryCap most elements to hold in memory, at least 2
+	 * @param codec writes elements to segment files and reads them back
+	 * @param directory directory for segment files
+	 */
+	public Storage(DataStructure dataStructure, int memoryCap, Codec<T> codec, File directory) 
+	{
+		this.dataStructure = dataStructure;
+		switch (this.dataStructure) 
+		{
+			case diskStack:
+				spillingStore = new SpillingStore<T>(true, memoryCap, codec, directory);
+				break;
+			case diskQueue:
+				spillingStore = new SpillingStore<T>(false, memoryCap, codec, directory);
+				break;
+			default:
+				throw new IllegalArgumentException(dataStructure + " does not use a Codec");
+		}
+	}
+	
+	/** Writes elements of type T to a disk DataStructure's segment files and reads them back */
+	public static interface Codec<T> 
+	{
+		/** @param element element to write
+		 * @param out segment file being written
+		 * @throws IOException if out cannot be written
+		 */
+		public void write(T element, DataOutput out) throws IOException;
+		
+		/** @param in segment file being read, positioned at an element
+		 * @return the element, equivalent to the one written
+		 * @throws IOException if in cannot be read
+		 */
+		public T read(DataInput in) throws IOException;
+	}
+	
+	/** An element of a priority Storage tagged with when it was stored */
+	private static class Entry<T> 
+	{
+		private final T element;
+		private final long sequence;
+		
+		private Entry(T element, long sequence) 
+		{
+			this.element = element;
+			this.sequence = sequence;
 		}
 	}
 
@@ -54,6 +143,40 @@ public class Storage<T>
 		return new Storage<E>(DataStructure.queue);
 	}
 	
+	/** Alternative to using the constructor returns
+ 	 * a Storage already configured to use a PriorityQueue
+ 	 * @param order ordering of elements, smallest retrieved first
+ 	 * @return instance of Storage configured to use a PriorityQueue
+ 	 */
+	public static <E> Storage<E> getPriorityInstance(Comparator<? super E> order) 
+	{
+		return new Storage<E>(DataStructure.priority, order);
+	}
+	
+	/** Alternative to using the constructor returns
+ 	 * a Storage already configured to use a stack that spills to disk
+ 	 * @param memoryCap most elements to hold in memory
+ 	 * @param codec writes and reads elements
+ 	 * @param directory directory for segment files
+ 	 * @return instance of Storage configured to use a disk stack
+ 	 */
+	public static <E> Storage<E> getDiskStackInstance(int memoryCap, Codec<E> codec, File directory) 
+	{
+		return new Storage<E>(DataStructure.diskStack, memoryCap, codec, directory);
+	}
+	
+	/** Alternative to using the constructor returns
+ 	 * a Storage already configured to use a queue that spills to disk
+ 	 * @param memoryCap most elements to hold in memory
+ 	 * @param codec writes and reads elements
+ 	 * @param directory directory for segment files
+ 	 * @return instance of Storage configured to use a disk queue
+ 	 */
+	public static <E> Storage<E> getDiskQueueInstance(int memoryCap, Codec<E> codec, File directory) 
+	{
+		return new Storage<E>(DataStructure.diskQueue, memoryCap, codec, directory);
+	}
+	
 	/** Add element to underlying data structure
 	 * @param element T to store
 	 */
@@ -66,7 +189,16 @@ public class Storage<T>
 				break;
 			case queue:
 				queue.add(element);
+				break;
+			case priority:
+				priorityQueue.add(new Entry<T>(element, stored));
+				break;
+			case diskStack:
+			case diskQueue:
+				spillingStore.store(element);
 		}
+		stored++;
+		peakSize = Math.max(peakSize, size());
 	}
 	
 	/** Remove and return the next T from storage
@@ -82,6 +214,13 @@ public class Storage<T>
 				break;
 			case queue:
 				next = queue.remove();
+				break;
+			case priority:
+				next = priorityQueue.remove().element;
+				break;
+			case diskStack:
+			case diskQueue:
+				next = spillingStore.retreive();
 		}
 		
 		return next;
@@ -98,6 +237,13 @@ public class Storage<T>
 				break;
 			case queue:
 				result = queue.isEmpty();
+				break;
+			case priority:
+				result = priorityQueue.isEmpty();
+				break;
+			case diskStack:
+			case diskQueue:
+				result = spillingStore.isEmpty();
 		}
 		return result;
 	}
@@ -113,7 +259,30 @@ public class Storage<T>
 				break;
 			case queue:
 				size = queue.size();
+				break;
+			case priority:
+				size = priorityQueue.size();
+				break;
+			case diskStack:
+			case diskQueue:
+				size = spillingStore.size();
 		} 
 		return size;
 	}
+	
+	/** Releases anything held outside the heap; only the disk DataStructures
+	 *  hold anything, and are left empty */
+	public void close() 
+	{
+		if (spillingStore != null) 
+		{
+			spillingStore.close();
+		}
+	}
+	
+	/** @return largest size of store so far */
+	public int peakSize() 
+	{
+		return peakSize;
+	}
 } // class Storage
\ No newline at end of file
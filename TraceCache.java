@@ -0,0 +1,429 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Remembers the results of CircuitTracer.search() so a board that has been
+ * solved before is answered without searching.
+ *
+ * Results are keyed by the SHA-256 of the board's contents and the search
+ * mode, so the same cells read from a different file, or in a different
+ * format, still hit. Each result is kept as packed cell indices - the traces
+ * themselves for the list-based modes, and the labeled shortest-trace DAG for
+ * -d and -b - and is turned back into TraceStates against the caller's board
+ * on each hit. Results are held in memory under a byte budget, least recently
+ * used first out, and optionally written to a directory as well, where they
+ * outlive the JVM.
+ *
+ * Weighted (-w) searches are passed straight through: they already take
+ * time linear in the board, and their traces may be too many to hold.
+ *
+ * @author CS221
+ */
+public class TraceCache {
+	/** first int of every result file, whose last int is the CRC-32 of everything before it */
+	private static final int FILE_MAGIC = 0x43425432; //"CBT2"
+	/** estimated bytes held per result besides its cell arrays */
+	private static final int ENTRY_OVERHEAD = 128;
+
+	private final long budget; //bytes of results held in memory at most
+	private final File directory; //null for memory only
+	private final LinkedHashMap<String, Result> results = new LinkedHashMap<String, Result>(16, 0.75f, true);
+	private long held; //bytes of results held in memory
+	private long hits;
+	private long diskHits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * @param budget bytes of results to hold in memory at most
+	 * @param directory directory to keep results in as well, or null for memory only
+	 * @throws IOException if directory does not exist and cannot be created
+	 */
+	public TraceCache(long budget, File directory) throws IOException {
+		if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("cannot create " + directory);
+		}
+		this.budget = budget;
+		this.directory = directory;
+	}
+
+	/**
+	 * Returns the cached result for board and mode if there is one, else
+	 * searches with CircuitTracer.search() and caches what it finds.
+	 * @param board board to search
+	 * @param mode search mode flag as accepted by CircuitTracer
+	 * @param threads worker threads for parallel queue mode
+	 * @return shortest traces, in the order the search mode gives them
+	 * @throws IllegalArgumentException if mode is not a search mode flag
+	 */
+	public Iterable<TraceState> search(CircuitBoard board, String mode, int threads) {
+		return search(board, mode, threads, new SearchStats(mode, board), 0);
+	}
+
+	/**
+	 * As search(board, mode, threads), counting the work of any search run.
+	 * @param board board to search
+	 * @param mode search mode flag as accepted by CircuitTracer
+	 * @param threads worker threads for parallel queue mode
+	 * @param stats receives the counts of the search, left untouched on a hit
+	 * @param memoryCap most states a stack or queue search holds in memory, or 0 for no limit
+	 * @return shortest traces, in the order the search mode gives them
+	 * @throws IllegalArgumentException if mode is not a search mode flag
+	 */
+	public Iterable<TraceState> search(CircuitBoard board, String mode, int threads, SearchStats stats, int memoryCap) {
+		return search(board, mode, threads, stats, memoryCap, 0);
+	}
+
+	/**
+	 * As search(board, mode, threads), counting the work of any search run and
+	 * returning only the first few traces. Results for different limits are
+	 * cached separately.
+	 * @param board board to search
+	 * @param mode search mode flag as accepted by CircuitTracer
+	 * @param threads worker threads for parallel queue mode
+	 * @param stats receives the counts of the search, left untouched on a hit
+	 * @param memoryCap most states a stack or queue search holds in memory, or 0 for no limit
+	 * @param limit most traces to return, or 0 for all of them
+	 * @return the first limit shortest traces, in the order the search mode gives them
+	 * @throws IllegalArgumentException if mode is not a search mode flag or limit is negative
+	 */
+	public Iterable<TraceState> search(CircuitBoard board, String mode, int threads, SearchStats stats, int memoryCap, long limit) {
+		if (!CircuitTracer.isSearchMode(mode)) {
+			throw new IllegalArgumentException("not a search mode: " + mode);
+		}
+		if (mode.equals("-w")) {
+			return CircuitTracer.search(board, mode, threads, stats, memoryCap, limit); //not cached
+		}
+		String key = key(board, (limit > 0) ? mode + " " + limit : mode);
+		Result result = lookup(key, board);
+		if (result != null) {
+			Iterable<TraceState> traces = result.traces(board);
+			return (limit > 0 && traces instanceof ShortestTraces) ? ((ShortestTraces) traces).limit(limit) : traces;
+		}
+		Iterable<TraceState> traces = CircuitTracer.search(board, mode, threads, stats, memoryCap, limit);
+		result = new Result(board, traces);
+		synchronized (this) {
+			misses++;
+			hold(key, result);
+		}
+		write(key, result);
+		return traces;
+	}
+
+	/** @return number of searches answered from memory or disk */
+	public synchronized long hits() {
+		return hits;
+	}
+
+	/** @return number of hits answered from disk */
+	public synchronized long diskHits() {
+		return diskHits;
+	}
+
+	/** @return number of searches that had to be run */
+	public synchronized long misses() {
+		return misses;
+	}
+
+	/** @return number of results dropped from memory to stay under the budget */
+	public synchronized long evictions() {
+		return evictions;
+	}
+
+	/** @return estimated bytes of results held in memory */
+	public synchronized long bytesHeld() {
+		return held;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public synchronized String toString() {
+		return "cache: " + hits + " hits (" + diskHits + " from disk), " + misses + " misses, "
+				+ evictions + " evictions, " + results.size() + " results in " + held + " bytes";
+	}
+
+	/** @return hex SHA-256 of the contents of board followed by mode and any limit */
+	private static String key(CircuitBoard board, String mode) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); //every JVM is required to have SHA-256
+		}
+		board.digest(digest);
+		digest.update(mode.getBytes());
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	/** @return the result for key from memory, else from disk, else null, counting a hit if found */
+	private Result lookup(String key, CircuitBoard board) {
+		synchronized (this) {
+			Result result = results.get(key);
+			if (result != null) {
+				hits++;
+				return result;
+			}
+		}
+		Result result = read(key, board);
+		if (result != null) {
+			synchronized (this) {
+				hits++;
+				diskHits++;
+				hold(key, result);
+			}
+		}
+		return result;
+	}
+
+	/** keeps result in memory, evicting least recently used results until under budget */
+	private void hold(String key, Result result) {
+		if (result.bytes() > budget) {
+			return; //would evict everything else and still not fit
+		}
+		Result old = results.put(key, result);
+		if (old != null) {
+			held -= old.bytes();
+		}
+		held += result.bytes();
+		Iterator<Map.Entry<String, Result>> oldest = results.entrySet().iterator();
+		while (held > budget) {
+			held -= oldest.next().getValue().bytes();
+			oldest.remove();
+			evictions++;
+		}
+	}
+
+	/** writes result to the directory, if there is one, replacing the file whole so readers never see part of it */
+	private void write(String key, Result result) {
+		if (directory == null) {
+			return;
+		}
+		try {
+			File temp = File.createTempFile(key, ".tmp", directory);
+			CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(new FileOutputStream(temp)), new CRC32());
+			DataOutputStream out = new DataOutputStream(checked);
+			try {
+				out.writeInt(FILE_MAGIC);
+				out.writeInt(result.rows);
+				out.writeInt(result.cols);
+				out.writeBoolean(result.dag);
+				out.writeInt(result.length);
+				writeInts(out, result.cells);
+				writeInts(out, result.index);
+				out.writeInt((int) checked.getChecksum().getValue());
+			} finally {
+				out.close();
+			}
+			Files.move(temp.toPath(), new File(directory, key + ".trc").toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			//the result is still held in memory; it will be searched again next run
+		}
+	}
+
+	/**
+	 * @return the result for key from the directory, or null if there is none;
+	 *  a file that cannot be read whole or does not describe traces on board
+	 *  is deleted and also gives null, so the board is searched again
+	 */
+	private Result read(String key, CircuitBoard board) {
+		if (directory == null) {
+			return null;
+		}
+		File file = new File(directory, key + ".trc");
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			long left = file.length() - 4; //bytes not yet read, checksum aside
+			CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(new FileInputStream(file)), new CRC32());
+			DataInputStream in = new DataInputStream(checked);
+			try {
+				if (in.readInt() == FILE_MAGIC && in.readInt() == board.numRows() && in.readInt() == board.numCols()) {
+					boolean dag = in.readBoolean();
+					int length = in.readInt();
+					left -= 17;
+					int[] cells = readInts(in, left);
+					left -= 4 + 4L * cells.length;
+					int[] index = readInts(in, left);
+					int sum = (int) checked.getChecksum().getValue();
+					Result result = new Result(board.numRows(), board.numCols(), dag, length, cells, index);
+					if (in.readInt() == sum && in.read() < 0 && result.fits(board)) {
+						return result;
+					}
+				}
+			} finally {
+				in.close();
+			}
+		} catch (IOException | RuntimeException e) {
+			//unreadable, cut short or corrupt
+		}
+		file.delete();
+		return null;
+	}
+
+	private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+		out.writeInt(values.length);
+		for (int v : values) {
+			out.writeInt(v);
+		}
+	}
+
+	/**
+	 * @param in stream to read a count and that many ints from
+	 * @param left bytes left in the file, count included
+	 * @throws IOException if the count is negative or more than the file holds
+	 */
+	private static int[] readInts(DataInputStream in, long left) throws IOException {
+		int n = in.readInt();
+		if (n < 0 || 4 + 4L * n > left) {
+			throw new IOException("bad count " + n + " with " + left + " bytes left");
+		}
+		int[] values = new int[n];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = in.readInt();
+		}
+		return values;
+	}
+
+	/**
+	 * A search result as packed cell indices (row * cols + col). For a DAG,
+	 * cells holds every cell on a shortest trace in step order and index holds
+	 * each one's step. Otherwise cells holds every trace end to end and trace
+	 * i is cells[index[i]] up to cells[index[i + 1]].
+	 */
+	private static class Result {
+		private final int rows;
+		private final int cols;
+		private final boolean dag;
+		private final int length;
+		private final int[] cells;
+		private final int[] index;
+
+		private Result(int rows, int cols, boolean dag, int length, int[] cells, int[] index) {
+			this.rows = rows;
+			this.cols = cols;
+			this.dag = dag;
+			this.length = length;
+			this.cells = cells;
+			this.index = index;
+		}
+
+		/** packs the traces found on board */
+		private Result(CircuitBoard board, Iterable<TraceState> traces) {
+			rows = board.numRows();
+			cols = board.numCols();
+			if (traces instanceof ShortestTraces) {
+				ShortestTraces dagTraces = (ShortestTraces) traces;
+				dag = true;
+				length = dagTraces.shortestLength();
+				cells = dagTraces.dagCells();
+				index = new int[cells.length];
+				for (int i = 0; i < cells.length; i++) {
+					index[i] = dagTraces.stepOf(cells[i]);
+				}
+			} else {
+				dag = false;
+				ArrayList<TraceState> list = new ArrayList<TraceState>();
+				int total = 0;
+				for (TraceState t : traces) {
+					list.add(t);
+					total += t.pathLength();
+				}
+				length = list.isEmpty() ? 0 : list.get(0).pathLength();
+				cells = new int[total];
+				index = new int[list.size() + 1];
+				for (int i = 0; i < list.size(); i++) {
+					index[i + 1] = index[i] + list.get(i).pathLength();
+					int n = index[i + 1];
+					for (TraceState s = list.get(i); s != null; s = s.getParent()) {
+						cells[--n] = s.getRow() * cols + s.getCol();
+					}
+				}
+			}
+		}
+
+		/** @return true if every cell is open on board and the steps or trace bounds are in order, so traces() cannot fail */
+		private boolean fits(CircuitBoard board) {
+			for (int cell : cells) {
+				if (!board.isOpen(cell)) {
+					return false;
+				}
+			}
+			if (dag) {
+				if (index.length != cells.length || cells.length > rows * cols
+						|| length != ((cells.length == 0) ? 0 : index[index.length - 1])) {
+					return false;
+				}
+				for (int i = 0; i < index.length; i++) {
+					if (index[i] < 1 || index[i] > length || (i > 0 && index[i] < index[i - 1])) {
+						return false; //steps run from 1 to length, in order
+					}
+				}
+				return true;
+			}
+			if (index.length == 0 || index[0] != 0 || index[index.length - 1] != cells.length) {
+				return false;
+			}
+			for (int i = 0; i + 1 < index.length; i++) {
+				if (index[i + 1] <= index[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/** @return estimated bytes held by this result */
+		private long bytes() {
+			return ENTRY_OVERHEAD + 4L * (cells.length + index.length);
+		}
+
+		/** @return the traces rebuilt on board, which has the same contents as the board searched */
+		private Iterable<TraceState> traces(CircuitBoard board) {
+			if (dag) {
+				int[] step = new int[rows * cols];
+				for (int i = 0; i < cells.length; i++) {
+					step[cells[i]] = index[i];
+				}
+				return new ShortestTraces(board, length, step, cells);
+			}
+			ArrayList<TraceState> traces = new ArrayList<TraceState>(index.length - 1);
+			HashMap<Integer, TraceState> roots = new HashMap<Integer, TraceState>(); //one board copy per first cell
+			for (int i = 0; i + 1 < index.length; i++) {
+				TraceState state = roots.get(cells[index[i]]);
+				if (state == null) {
+					state = new TraceState(board, cells[index[i]] / cols, cells[index[i]] % cols);
+					roots.put(cells[index[i]], state);
+				}
+				for (int j = index[i] + 1; j < index[i + 1]; j++) {
+					state = new TraceState(state, cells[j] / cols, cells[j] % cols);
+				}
+				traces.add(state);
+			}
+			return traces;
+		}
+	}
+}
@@ -0,0 +1,619 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.zip.CRC32;
+
+/**
+ * Answers trace requests from one long-running JVM, so JVM startup and JIT
+ * warmup are paid once rather than once per board.
+ *
+ * Each request is one line holding the arguments CircuitTracer would take,
+ * without the console/GUI flag:
+ *   [-t threads] [-v|-j] [-m memoryStates] [--compact] [--limit N] mode file
+ * Requests are read from standard input, or from each client connected to a
+ * Unix domain socket, and run concurrently. Each answer is written whole, in
+ * the order answers finish rather than the order requests arrive, as
+ *   == request line
+ *   output CircuitTracer would print, then statistics for -v or -j
+ *   .
+ * Blank lines and lines starting with '#' are skipped. An answer that would
+ * grow past a fixed size is dropped and replaced by a line saying so, since
+ * it is held in memory until it is whole.
+ *
+ * Requests run on virtual threads when the JVM provides them, at most a
+ * fixed number searching at once. Parsed boards are kept in a small cache,
+ * least recently used first out, and reused while the lengths and
+ * modification times of their files are unchanged, checking the contents
+ * as well while those times are too recent to be trusted. Boards are only
+ * read by searches, so one copy serves concurrent requests, and requests for
+ * a board not yet parsed wait for a single parse of it.
+ *
+ * @author CS221
+ */
+public class TraceDaemon {
+	/** default most boards kept parsed */
+	public static final int DEFAULT_BOARDS = 16;
+	/** default most megabytes in one answer */
+	public static final int DEFAULT_ANSWER_MB = 16;
+
+	private final BoardCache boards;
+	private final TraceCache cache; //null to search every board
+	private final Semaphore running; //one permit per request allowed to search at once
+	private final int answerBytes; //most bytes in one answer
+	private final ExecutorService pool = BatchTracer.newExecutor();
+
+	/** launch the program
+	 * @param args options only:
+	 *  -r N most requests searching at once (default: all processors)
+	 *  -b N most parsed boards to keep (default 16)
+	 *  -a N most megabytes in one answer (default 16)
+	 *  -k dir keep results in dir and reuse them for boards solved before
+	 *  -u path listen on a Unix domain socket at path instead of reading standard input
+	 */
+	public static void main(String[] args) {
+		int concurrent = Runtime.getRuntime().availableProcessors();
+		int boardsKept = DEFAULT_BOARDS;
+		int answerMB = DEFAULT_ANSWER_MB;
+		File cacheDir = null;
+		String socketPath = null;
+		try {
+			for (int next = 0; next < args.length; ) {
+				String option = args[next++];
+				if (option.equals("-r")) {
+					concurrent = Integer.parseInt(args[next++]);
+				} else if (option.equals("-b")) {
+					boardsKept = Integer.parseInt(args[next++]);
+				} else if (option.equals("-a")) {
+					answerMB = Integer.parseInt(args[next++]);
+				} else if (option.equals("-k")) {
+					cacheDir = new File(args[next++]);
+				} else if (option.equals("-u")) {
+					socketPath = args[next++];
+				} else {
+					throw new IllegalArgumentException(option);
+				}
+			}
+		} catch (RuntimeException e) {
+			printUsage();
+			System.exit(1);
+		}
+		if (concurrent < 1 || boardsKept < 0 || answerMB < 1 || answerMB > Integer.MAX_VALUE / (1 << 20)) {
+			printUsage();
+			System.exit(1);
+		}
+		try {
+			TraceCache cache = (cacheDir == null) ? null : new TraceCache(Runtime.getRuntime().maxMemory() / 8, cacheDir);
+			TraceDaemon daemon = new TraceDaemon(concurrent, boardsKept, answerMB << 20, cache);
+			if (socketPath == null) {
+				System.out.flush();
+				daemon.serve(new InputStreamReader(System.in, StandardCharsets.US_ASCII), System.out);
+				daemon.pool.shutdown();
+			} else {
+				daemon.listen(socketPath);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/** Print instructions for running TraceDaemon from the command line. */
+	private static void printUsage() {
+		System.out.println("Usage: $ java TraceDaemon [-r concurrentRequests] [-b boardsKept] [-a answerMB] [-k cacheDir] [-u socketPath]");
+		System.out.println("Each request line: [-t threads] [-v|-j] [-m memoryStates] [--compact] [--limit N] "
+							+ "stack(-s)/queue(-q)/distance layers(-d)/bidirectional(-b)/A*(-a)/parallel queue(-p)/jump points(-u)/weighted(-w) file");
+	}
+
+	/**
+	 * @param concurrent most requests searching at once, at least 1
+	 * @param boardsKept most parsed boards to keep, 0 to read every board afresh
+	 * @param answerBytes most bytes in one answer, at least enough for the "==" line
+	 * @param cache cache to answer repeated boards from, or null to search every board
+	 */
+	public TraceDaemon(int concurrent, int boardsKept, int answerBytes, TraceCache cache) {
+		boards = new BoardCache(boardsKept);
+		this.cache = cache;
+		running = new Semaphore(concurrent, true);
+		this.answerBytes = answerBytes;
+	}
+
+	/**
+	 * Answers every request read from in, then waits for the last answer.
+	 * @param in source of request lines
+	 * @param out stream answers are written to, left open
+	 * @throws IOException if in cannot be read
+	 */
+	public void serve(Reader in, OutputStream out) throws IOException {
+		BufferedReader requests = new BufferedReader(in);
+		Semaphore answered = new Semaphore(0); //one permit per request answered
+		int submitted = 0;
+		try {
+			String line;
+			while ((line = requests.readLine()) != null) {
+				final String request = line.trim();
+				if (request.isEmpty() || request.startsWith("#")) {
+					continue;
+				}
+				submitted++;
+				pool.execute(() -> {
+					try {
+						byte[] answer = answer(request);
+						synchronized (out) {
+							out.write(answer);
+							out.flush();
+						}
+					} catch (IOException e) {
+						//the client has gone; nothing is left to tell it
+					} finally {
+						answered.release();
+					}
+				});
+			}
+		} finally {
+			answered.acquireUninterruptibly(submitted);
+		}
+	}
+
+	/**
+	 * Accepts clients on a Unix domain socket until the JVM exits, serving
+	 * each connection's requests as serve() does. Needs a JVM with Unix
+	 * domain socket channels (Java 16 or later).
+	 * @param path file name to bind the socket to; an existing file there is replaced
+	 * @throws IOException if the socket cannot be bound or accepting fails
+	 * @throws UnsupportedOperationException if the JVM has no Unix domain sockets
+	 */
+	public void listen(String path) throws IOException {
+		SocketAddress address;
+		ProtocolFamily unix;
+		try {
+			unix = StandardProtocolFamily.valueOf("UNIX");
+			address = (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress")
+					.getMethod("of", String.class).invoke(null, path);
+		} catch (IllegalArgumentException | ReflectiveOperationException e) {
+			throw new UnsupportedOperationException("Unix domain sockets need Java 16 or later");
+		}
+		new File(path).delete();
+		ServerSocketChannel server = ServerSocketChannel.open(unix);
+		try {
+			server.bind(address);
+			new File(path).deleteOnExit();
+			while (true) {
+				final SocketChannel client = server.accept();
+				//a thread of its own, so waiting on a client never holds a worker a request could use
+				new Thread(() -> {
+					try {
+						serve(new InputStreamReader(new ChannelInput(client), StandardCharsets.US_ASCII), new ChannelOutput(client));
+					} catch (IOException e) {
+						//the client has gone
+					} finally {
+						try {
+							client.close();
+						} catch (IOException e) {
+							//already closed
+						}
+					}
+				}).start();
+			}
+		} finally {
+			server.close();
+		}
+	}
+
+	/**
+	 * Runs one request.
+	 * @param request request line
+	 * @return the whole answer, from the "==" line to the "." line; if it
+	 *  would be longer than answerBytes, the output between them is replaced
+	 *  by a line saying it was too large
+	 */
+	public byte[] answer(String request) {
+		AnswerBuffer buffer = new AnswerBuffer(answerBytes);
+		PrintStream out = new PrintStream(buffer);
+		out.println("== " + request);
+		out.flush();
+		int header = buffer.size();
+		try {
+			running.acquire();
+			try {
+				run(request.split("\\s+"), out);
+			} catch (AnswerTooLargeException e) {
+				buffer.truncate(header);
+				out = new PrintStream(buffer); //the old one may still hold part of what was refused
+				out.println("Answer too large: more than " + (answerBytes >> 20) + " MB; ask with --limit or --compact.");
+			} catch (RuntimeException e) {
+				buffer.truncate(header);
+				out = new PrintStream(buffer); //no traces before the failure are sent, as for a board that cannot be read
+				out.println("Failed: " + e);
+			} finally {
+				running.release();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			out.println("Interrupted.");
+		}
+		out.println(".");
+		out.close();
+		return buffer.toByteArray();
+	}
+
+	/** parses the arguments of one request and writes what CircuitTracer would print for them to out */
+	private void run(String[] args, PrintStream out) {
+		int threads = Runtime.getRuntime().availableProcessors();
+		String statsFormat = null; //-v or -j, null for no statistics
+		int memoryCap = 0;
+		boolean compact = false;
+		long limit = 0;
+		int next = 0; //index of the next arg to read
+		try {
+			while (args.length - next > 2) {
+				String option = args[next++];
+				if (option.equals("-t")) {
+					threads = Integer.parseInt(args[next++]);
+				} else if (option.equals("-v") || option.equals("-j")) {
+					statsFormat = option;
+				} else if (option.equals("-m")) {
+					memoryCap = Integer.parseInt(args[next++]);
+				} else if (option.equals("--compact")) {
+					compact = true;
+				} else if (option.equals("--limit")) {
+					limit = Long.parseLong(args[next++]);
+				} else {
+					throw new IllegalArgumentException(option);
+				}
+			}
+		} catch (RuntimeException e) {
+			next = -1;
+		}
+		if (next < 0 || args.length - next != 2 || !CircuitTracer.isSearchMode(args[next])
+				|| threads < 1 || (memoryCap != 0 && memoryCap < 2) || limit < 0) {
+			out.println("Invalid request.");
+			return;
+		}
+		String mode = args[next];
+		long allocated = SearchStats.threadAllocatedBytes();
+		long time = System.nanoTime();
+		CircuitBoard board;
+		try {
+			board = boards.get(new File(args[next + 1]), CircuitTracer.usesCosts(mode));
+		} catch (FileNotFoundException e) {
+			out.println("File not found.");
+			return;
+		} catch (InvalidFileFormatException e) {
+			out.println("Invalid file format: " + e.getMessage());
+			return;
+		} catch (NumberFormatException e) {
+			out.println("Invalid number format.");
+			return;
+		}
+		SearchStats stats = new SearchStats(mode, board);
+		stats.setParseNanos(System.nanoTime() - time);
+		time = System.nanoTime();
+		Iterable<TraceState> traces = (cache != null) ? cache.search(board, mode, threads, stats, memoryCap, limit)
+				: CircuitTracer.search(board, mode, threads, stats, memoryCap, limit);
+		stats.setSearchNanos(System.nanoTime() - time);
+		time = System.nanoTime();
+		TraceEvents.Output output = TraceEvents.beginOutput();
+		long printed = CircuitTracer.printTraces(traces, out, compact);
+		CircuitTracer.printTotal(mode, traces, printed, out);
+		TraceEvents.printed(output, board.numRows(), board.numCols(), printed);
+		stats.setPrintNanos(System.nanoTime() - time);
+		stats.setTraces(printed);
+		if (allocated >= 0) {
+			stats.setAllocatedBytes(SearchStats.threadAllocatedBytes() - allocated);
+		}
+		if (statsFormat != null) {
+			out.println(statsFormat.equals("-j") ? stats.toJson() : stats.toString());
+		}
+	}
+
+	/** Parsed boards by file, least recently used first out */
+	private static class BoardCache {
+		private final int capacity;
+		private final LinkedHashMap<String, Entry> entries;
+
+		private BoardCache(final int capacity) {
+			this.capacity = capacity;
+			entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+				protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+					return size() > capacity;
+				}
+			};
+		}
+
+		/**
+		 * @param file board file
+		 * @param withCosts true to read the board with its cost map; such boards are kept apart from those without
+		 * @return the board in file, parsed again only if it is not kept, the
+		 *  length or modification time of the file or of the cost map read with
+		 *  it has changed since, or they were changed too recently to tell and
+		 *  their contents have changed; concurrent requests for a board not kept share one parse
+		 * @throws FileNotFoundException if the file does not exist or cannot be read
+		 */
+		private CircuitBoard get(File file, boolean withCosts) throws FileNotFoundException {
+			String key = file.getAbsolutePath() + (withCosts ? CircuitBoard.COST_SUFFIX : "");
+			File costFile = withCosts ? new File(key) : null;
+			while (true) {
+				long now = System.currentTimeMillis();
+				Stamp stamp = new Stamp(file, costFile);
+				Entry entry;
+				boolean parse = false;
+				synchronized (this) {
+					entry = entries.get(key);
+					if (entry == null || !entry.stamp.equals(stamp)) {
+						entry = new Entry(file, costFile, stamp, now);
+						if (capacity > 0) {
+							entries.put(key, entry);
+						}
+						parse = true;
+					}
+				}
+				if (parse) {
+					entry.board.run();
+				}
+				CircuitBoard board = await(key, entry);
+				if (parse || entry.unchanged(file, costFile, now)) {
+					return board;
+				}
+				synchronized (this) {
+					entries.remove(key, entry); //changed without its stamp changing, so read afresh
+				}
+			}
+		}
+
+		/** @return the board entry parses, waiting for it; a failed parse is not kept, and its exception is thrown */
+		private CircuitBoard await(String key, Entry entry) throws FileNotFoundException {
+			boolean interrupted = false;
+			try {
+				while (true) {
+					try {
+						return entry.board.get();
+					} catch (InterruptedException e) {
+						interrupted = true; //the parse is under way, so wait it out
+					}
+				}
+			} catch (ExecutionException e) {
+				synchronized (this) {
+					entries.remove(key, entry); //not kept, so the next request reads the file afresh
+				}
+				Throwable cause = e.getCause();
+				if (cause instanceof FileNotFoundException) {
+					throw (FileNotFoundException) cause;
+				} else if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new IllegalStateException(cause);
+			} finally {
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
+	/** Length and modification time of a board file and of the cost map read with it */
+	private static class Stamp {
+		private final long length;
+		private final long modified; //0 if there is no file
+		private final long costsLength;
+		private final long costsModified; //0 if there is no cost map, or it is not read
+
+		/**
+		 * @param file board file
+		 * @param costFile its cost map, or null if it is not read
+		 */
+		private Stamp(File file, File costFile) {
+			length = file.length();
+			modified = file.lastModified();
+			costsLength = (costFile == null) ? 0 : costFile.length();
+			costsModified = (costFile == null) ? 0 : costFile.lastModified();
+		}
+
+		/** @return true if either file was changed so shortly before now that it could change again without a new stamp */
+		private boolean racy(long now) {
+			return now - Math.max(modified, costsModified) < Entry.RACY_MILLIS;
+		}
+
+		public boolean equals(Object other) {
+			if (!(other instanceof Stamp)) {
+				return false;
+			}
+			Stamp stamp = (Stamp) other;
+			return length == stamp.length && modified == stamp.modified
+					&& costsLength == stamp.costsLength && costsModified == stamp.costsModified;
+		}
+
+		public int hashCode() {
+			return Long.hashCode(modified) * 31 + Long.hashCode(length);
+		}
+	}
+
+	/**
+	 * A board, parsed or being parsed, and the stamp of its files when it was
+	 * read. When the stamp is too recent to be trusted, the contents of the
+	 * files are checksummed before parsing, so later requests can check them.
+	 */
+	private static class Entry {
+		/** a file changed less than this long before it is stamped may change again within its modification time's resolution */
+		private static final long RACY_MILLIS = 2000;
+		/** largest region of a file mapped at once to checksum it */
+		private static final long CHECKSUM_CHUNK = 1L << 30;
+
+		private final FutureTask<CircuitBoard> board;
+		private final Stamp stamp;
+		private volatile boolean racy; //contents must be checked before reuse
+		private long checksum; //taken before parsing, if racy
+		private long costsChecksum; //the same for the cost map, -1 if there is none
+
+		/**
+		 * @param file board file
+		 * @param costFile its cost map, or null if it is not read
+		 * @param stamp stamp of both, taken no earlier than now
+		 * @param now time in milliseconds the stamp is judged against
+		 */
+		private Entry(final File file, final File costFile, Stamp stamp, long now) {
+			this.stamp = stamp;
+			racy = stamp.racy(now);
+			board = new FutureTask<CircuitBoard>(() -> {
+				if (racy) {
+					checksum = checksum(file);
+					costsChecksum = costsChecksum(costFile);
+				}
+				return new CircuitBoard(file.getPath(), costFile != null);
+			});
+		}
+
+		/**
+		 * Checks the files again if the stamp could not be trusted. Once the
+		 * stamp is old enough, a match lets later requests rely on it alone.
+		 * Call only after the parse has finished.
+		 * @param file board file
+		 * @param costFile its cost map, or null if it is not read
+		 * @param now time in milliseconds the current stamp was taken, no earlier
+		 * @return true if the files hold what was parsed
+		 * @throws FileNotFoundException if the board file does not exist or cannot be read
+		 */
+		private boolean unchanged(File file, File costFile, long now) throws FileNotFoundException {
+			if (!racy) {
+				return true;
+			}
+			if (checksum(file) != checksum || costsChecksum(costFile) != costsChecksum) {
+				return false;
+			}
+			racy = stamp.racy(now);
+			return true;
+		}
+
+		/** @return checksum of costFile, or -1 if it is null or there is no such file */
+		private static long costsChecksum(File costFile) {
+			if (costFile == null) {
+				return -1;
+			}
+			try {
+				return checksum(costFile);
+			} catch (FileNotFoundException e) {
+				return -1; //no cost map, so the board is read without one
+			}
+		}
+
+		/**
+		 * @param file file to read
+		 * @return CRC-32 of the contents of file
+		 * @throws FileNotFoundException if the file does not exist or cannot be read
+		 */
+		private static long checksum(File file) throws FileNotFoundException {
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				CRC32 crc = new CRC32();
+				long size = channel.size();
+				for (long at = 0; at < size; at += CHECKSUM_CHUNK) {
+					crc.update(channel.map(FileChannel.MapMode.READ_ONLY, at, Math.min(CHECKSUM_CHUNK, size - at)));
+				}
+				return crc.getValue();
+			} catch (NoSuchFileException e) {
+				throw new FileNotFoundException(file.getPath());
+			} catch (IOException e) {
+				throw new FileNotFoundException(file.getPath() + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/** Holds an answer in memory, refusing to grow past a limit */
+	private static class AnswerBuffer extends ByteArrayOutputStream {
+		private final int limit;
+
+		/** @param limit most bytes held */
+		private AnswerBuffer(int limit) {
+			this.limit = limit;
+		}
+
+		public synchronized void write(int b) {
+			if (count >= limit) {
+				throw new AnswerTooLargeException();
+			}
+			super.write(b);
+		}
+
+		public synchronized void write(byte[] b, int off, int len) {
+			if (len > limit - count) {
+				throw new AnswerTooLargeException();
+			}
+			super.write(b, off, len);
+		}
+
+		/** @param size number of bytes to keep, dropping those written after them */
+		private synchronized void truncate(int size) {
+			count = size;
+		}
+	}
+
+	/** Thrown through the PrintStream of a request, which would swallow an IOException, once its answer is too large */
+	@SuppressWarnings("serial")
+	private static class AnswerTooLargeException extends RuntimeException {
+	}
+
+	/**
+	 * Reads a blocking socket channel directly. Channels.newInputStream()
+	 * holds the channel's blocking lock while waiting to read, which would
+	 * keep answers from being written to the same client meanwhile.
+	 */
+	private static class ChannelInput extends InputStream {
+		private final SocketChannel channel;
+
+		private ChannelInput(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return (read(b, 0, 1) < 0) ? -1 : (b[0] & 0xff);
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException {
+			return (len == 0) ? 0 : channel.read(ByteBuffer.wrap(b, off, len));
+		}
+	}
+
+	/** Writes a blocking socket channel directly, for the same reason as ChannelInput */
+	private static class ChannelOutput extends OutputStream {
+		private final SocketChannel channel;
+
+		private ChannelOutput(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		public void write(int b) throws IOException {
+			write(new byte[] {(byte) b}, 0, 1);
+		}
+
+		public void write(byte[] b, int off, int len) throws IOException {
+			ByteBuffer bytes = ByteBuffer.wrap(b, off, len);
+			while (bytes.hasRemaining()) {
+				channel.write(bytes);
+			}
+		}
+	}
+}
@@ -0,0 +1,200 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder events for the trace search pipeline, so a recording
+ * shows board parsing, search progress and output on the same timeline as
+ * GC pauses. Every event carries the board dimensions and a state count.
+ *
+ * Events are only written while a recording is running, e.g. with
+ * -XX:StartFlightRecording, and are emitted at milestones rather than per
+ * state. Until Flight Recorder has started in the JVM the methods here
+ * return at once and no event class is loaded, so runs without a recording
+ * never initialize JFR.
+ *
+ * @author CS221
+ */
+public class TraceEvents {
+
+	private TraceEvents() {
+	}
+
+	/** @return true once Flight Recorder has started in this JVM, at launch or later through jcmd */
+	public static boolean recording() {
+		return FlightRecorder.isInitialized();
+	}
+
+	/** @return a Parse event begun now, or null if nothing can be recording */
+	public static Parse beginParse() {
+		if (!recording()) {
+			return null;
+		}
+		Parse event = new Parse();
+		event.begin();
+		return event;
+	}
+
+	/** Ends a Parse event and emits it if a recording wants it
+	 * @param event event from beginParse(), or null for none
+	 * @param file board file read
+	 * @param binary true if the file was a binary board
+	 * @param rows rows on the board
+	 * @param cols columns on the board
+	 */
+	public static void parsed(Parse event, String file, boolean binary, int rows, int cols) {
+		if (event != null) {
+			event.emit(file, binary, rows, cols);
+		}
+	}
+
+	/** @return an Output event begun now, or null if nothing can be recording */
+	public static Output beginOutput() {
+		if (!recording()) {
+			return null;
+		}
+		Output event = new Output();
+		event.begin();
+		return event;
+	}
+
+	/** Ends an Output event and emits it if a recording wants it
+	 * @param event event from beginOutput(), or null for none
+	 * @param rows rows on the board
+	 * @param cols columns on the board
+	 * @param traces traces printed
+	 */
+	public static void printed(Output event, int rows, int cols, long traces) {
+		if (event != null) {
+			event.emit(rows, cols, traces);
+		}
+	}
+
+	/** Emits a Level event if a recording wants it
+	 * @param rows rows on the board
+	 * @param cols columns on the board
+	 * @param depth length of the traces at the new level or depth
+	 * @param states states waiting to be expanded
+	 */
+	public static void level(int rows, int cols, int depth, long states) {
+		if (!recording()) {
+			return;
+		}
+		Level event = new Level();
+		if (event.shouldCommit()) {
+			event.rows = rows;
+			event.cols = cols;
+			event.depth = depth;
+			event.states = states;
+			event.commit();
+		}
+	}
+
+	/** Emits a HighWater event if a recording wants it
+	 * @param rows rows on the board
+	 * @param cols columns on the board
+	 * @param states peak states held
+	 */
+	public static void highWater(int rows, int cols, long states) {
+		if (!recording()) {
+			return;
+		}
+		HighWater event = new HighWater();
+		if (event.shouldCommit()) {
+			event.rows = rows;
+			event.cols = cols;
+			event.states = states;
+			event.commit();
+		}
+	}
+
+	/** Reading a board file, from open to the last cell */
+	@Name("CircuitTracer.Parse")
+	@Label("Board Parse")
+	@Category("CircuitTracer")
+	public static class Parse extends Event {
+		@Label("File")
+		String file;
+		@Label("Binary")
+		boolean binary;
+		@Label("Rows")
+		int rows;
+		@Label("Columns")
+		int cols;
+		@Label("States")
+		@Description("Cells read")
+		long states;
+
+		/** Ends the event begun before reading and commits it if a recording wants it */
+		public void emit(String file, boolean binary, int rows, int cols) {
+			end();
+			if (shouldCommit()) {
+				this.file = file;
+				this.binary = binary;
+				this.rows = rows;
+				this.cols = cols;
+				states = (long) rows * cols;
+				commit();
+			}
+		}
+	}
+
+	/** A search reaching a new BFS level or a new greatest DFS depth */
+	@Name("CircuitTracer.Level")
+	@Label("Search Level")
+	@Category("CircuitTracer")
+	public static class Level extends Event {
+		@Label("Rows")
+		int rows;
+		@Label("Columns")
+		int cols;
+		@Label("Depth")
+		@Description("Length of the traces at the new level or depth")
+		int depth;
+		@Label("States")
+		@Description("States waiting to be expanded")
+		long states;
+	}
+
+	/** Search storage holding more states than ever before, reported each time the peak doubles */
+	@Name("CircuitTracer.StorageHighWater")
+	@Label("Storage High Water")
+	@Category("CircuitTracer")
+	public static class HighWater extends Event {
+		@Label("Rows")
+		int rows;
+		@Label("Columns")
+		int cols;
+		@Label("States")
+		@Description("Peak states held")
+		long states;
+	}
+
+	/** Building and printing the traces found */
+	@Name("CircuitTracer.Output")
+	@Label("Trace Output")
+	@Category("CircuitTracer")
+	public static class Output extends Event {
+		@Label("Rows")
+		int rows;
+		@Label("Columns")
+		int cols;
+		@Label("States")
+		@Description("Traces printed")
+		long states;
+
+		/** Ends the event begun before printing and commits it if a recording wants it */
+		public void emit(int rows, int cols, long traces) {
+			end();
+			if (shouldCommit()) {
+				this.rows = rows;
+				this.cols = cols;
+				states = traces;
+				commit();
+			}
+		}
+	}
+}
@@ -0,0 +1,172 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes traces to a stream without building a String or a CircuitBoard for
+ * each one.
+ *
+ * In full format each trace is written exactly as CircuitBoard.toString()
+ * followed by a line separator would print it. The board without a trace is
+ * rendered to bytes once, from the first trace; each trace is then a copy of
+ * those bytes with a 'T' stored at each cell of its path. In compact format
+ * each trace is one line listing its cells as row,col pairs, starting next to
+ * the starting component.
+ *
+ * Output collects in a reusable buffer that is written out only when full
+ * and by flush(), straight to the FileChannel when the stream is a
+ * FileOutputStream. Every trace written must be on the same board.
+ *
+ * @author CS221
+ */
+public class TraceRenderer {
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+	private final OutputStream out;
+	private final WritableByteChannel channel; //null to write through out
+	private final boolean compact;
+	private byte[] buffer = new byte[BUFFER_SIZE];
+	private int used; //bytes of buffer waiting to be written
+	private byte[] template; //full format: the board without a trace, then a line separator
+	private int rowBytes; //full format: bytes per row of the board
+	private int[] cells = new int[16]; //compact format: rows and columns of the path being written
+	private byte[][] digits = new byte[0][]; //compact format: decimal digits of each row and column number written so far
+
+	/**
+	 * @param out stream to write to, left open
+	 * @param compact true to write each trace as a line of row,col pairs, false for the full board
+	 */
+	public TraceRenderer(OutputStream out, boolean compact) {
+		this.out = out;
+		channel = (out instanceof FileOutputStream) ? ((FileOutputStream) out).getChannel() : null;
+		this.compact = compact;
+	}
+
+	/**
+	 * Adds a trace to the output.
+	 * @param trace trace to write
+	 * @throws IOException if the buffer fills and cannot be written out
+	 */
+	public void render(TraceState trace) throws IOException {
+		if (compact) {
+			renderCells(trace);
+			return;
+		}
+		if (template == null) {
+			buildTemplate(trace);
+		}
+		if (used + template.length > buffer.length) {
+			drain();
+		}
+		System.arraycopy(template, 0, buffer, used, template.length);
+		for (TraceState state = trace; state != null; state = state.getParent()) {
+			buffer[used + state.getRow() * rowBytes + 2 * state.getCol()] = 'T';
+		}
+		used += template.length;
+	}
+
+	/**
+	 * Adds a line of text to the output.
+	 * @param line ASCII text, without a line separator
+	 * @throws IOException if the buffer fills and cannot be written out
+	 */
+	public void println(String line) throws IOException {
+		byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+		if (used + bytes.length + LINE_SEPARATOR.length > buffer.length) {
+			drain();
+		}
+		if (bytes.length + LINE_SEPARATOR.length > buffer.length) {
+			buffer = new byte[bytes.length + LINE_SEPARATOR.length];
+		}
+		System.arraycopy(bytes, 0, buffer, used, bytes.length);
+		used += bytes.length;
+		System.arraycopy(LINE_SEPARATOR, 0, buffer, used, LINE_SEPARATOR.length);
+		used += LINE_SEPARATOR.length;
+	}
+
+	/**
+	 * Writes out everything added so far and flushes the stream.
+	 * @throws IOException if the output cannot be written
+	 */
+	public void flush() throws IOException {
+		drain();
+		out.flush();
+	}
+
+	/** renders the board of trace without the trace, which must be 'O' under it */
+	private void buildTemplate(TraceState trace) {
+		CircuitBoard board = trace.getBoard();
+		rowBytes = 2 * board.numCols() + 1;
+		int boardBytes = board.numRows() * rowBytes;
+		template = new byte[boardBytes + LINE_SEPARATOR.length];
+		for (int row = 0; row < board.numRows(); row++) {
+			for (int col = 0; col < board.numCols(); col++) {
+				template[row * rowBytes + 2 * col] = (byte) board.charAt(row, col);
+				template[row * rowBytes + 2 * col + 1] = ' ';
+			}
+			template[row * rowBytes + rowBytes - 1] = '\n';
+		}
+		for (TraceState state = trace; state != null; state = state.getParent()) {
+			template[state.getRow() * rowBytes + 2 * state.getCol()] = 'O';
+		}
+		System.arraycopy(LINE_SEPARATOR, 0, template, boardBytes, LINE_SEPARATOR.length);
+		if (template.length > buffer.length) {
+			buffer = new byte[template.length];
+		}
+	}
+
+	/** adds trace as one line of row,col pairs */
+	private void renderCells(TraceState trace) throws IOException {
+		int length = trace.pathLength();
+		if (cells.length < 2 * length) {
+			cells = new int[Math.max(2 * length, 2 * cells.length)];
+		}
+		for (TraceState state = trace; state != null; state = state.getParent()) {
+			cells[2 * (state.pathLength() - 1)] = state.getRow();
+			cells[2 * (state.pathLength() - 1) + 1] = state.getCol();
+		}
+		for (int i = 0; i < length; i++) {
+			if (used + 24 + LINE_SEPARATOR.length > buffer.length) {
+				drain();
+			}
+			if (i > 0) {
+				buffer[used++] = ' ';
+			}
+			writeInt(cells[2 * i]);
+			buffer[used++] = ',';
+			writeInt(cells[2 * i + 1]);
+		}
+		System.arraycopy(LINE_SEPARATOR, 0, buffer, used, LINE_SEPARATOR.length);
+		used += LINE_SEPARATOR.length;
+	}
+
+	/** adds the decimal digits of a non-negative int */
+	private void writeInt(int n) {
+		if (n >= digits.length) {
+			digits = Arrays.copyOf(digits, Math.max(n + 1, 2 * digits.length));
+		}
+		if (digits[n] == null) {
+			digits[n] = Integer.toString(n).getBytes(StandardCharsets.US_ASCII);
+		}
+		System.arraycopy(digits[n], 0, buffer, used, digits[n].length);
+		used += digits[n].length;
+	}
+
+	/** writes out the buffer and empties it */
+	private void drain() throws IOException {
+		if (channel != null) {
+			ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, used);
+			while (bytes.hasRemaining()) {
+				channel.write(bytes);
+			}
+		} else {
+			out.write(buffer, 0, used);
+		}
+		used = 0;
+	}
+}
@@ -3,101 +3,143 @@ import java.util.ArrayList;
 
 /**
  * Represents a search state including a potential path through a CircuitBoard
- * 
+ *
+ * States are persistent, parent-linked path nodes: each state records only its
+ * own cell, its path length and the state it was extended from. All states
+ * descending from the same initial state share one unmodified CircuitBoard, so
+ * extending a path is O(1) in time and memory. The board with the trace filled
+ * in and the list of path points are rebuilt only when asked for.
+ *
  * @author mvail
  */
 public class TraceState {
-	private CircuitBoard board;
-	private ArrayList<Point> path;
-	
+	private final CircuitBoard board; //shared, never modified - does not include the path
+	private final TraceState parent; //state this one was extended from, null for an initial state
+	private final int row;
+	private final int col;
+	private final int length;
+
 	/** Initial state with the trace path beginning at given row and column
-	 * @param startingBoard 
+	 * @param startingBoard
 	 * @param row initial path row
 	 * @param col initial path column
+	 * @throws OccupiedPositionException if row, col is not open on startingBoard
 	 */
 	public TraceState(CircuitBoard startingBoard, int row, int col) {
+		if (!startingBoard.isOpen(row, col)) {
+			throw new OccupiedPositionException("row " + row + ", col " + col + " is not open");
+		}
 		board = new CircuitBoard(startingBoard);
-		path = new ArrayList<Point>();
-		board.makeTrace(row, col); //will throw exception if row, col is occupied
-		path.add(new Point(row, col));
+		parent = null;
+		this.row = row;
+		this.col = col;
+		length = 1;
 	}
-	
-	/** New state adding given row and column position to the path from previous state
+
+	/** New state adding given row and column position to the path from previous state.
+	 * Only the underlying board is checked here so that extending a path stays O(1);
+	 * callers are expected to check {@link #isOpen(int, int)} on previousState first
+	 * to keep the path from crossing itself.
 	 * @param previousState
 	 * @param row row of next point to add to the path
 	 * @param col column of next point to add to the path
+	 * @throws OccupiedPositionException if row, col is not open on the underlying board
 	 */
 	public TraceState(TraceState previousState, int row, int col) {
-		board = new CircuitBoard(previousState.board);
-		path = new ArrayList<Point>(previousState.path);
-		board.makeTrace(row, col); //will throw exception if row, col is occupied
-		path.add(new Point(row, col));
+		if (!previousState.board.isOpen(row, col)) {
+			throw new OccupiedPositionException("row " + row + ", col " + col + " is not open");
+		}
+		board = previousState.board;
+		parent = previousState;
+		this.row = row;
+		this.col = col;
+		length = previousState.length + 1;
 	}
-	
+
 	/** Indicates if a position is open in this state's board
 	 * @param row row of position to check
 	 * @param col column of position to check
-	 * @return true if given row and column position is open
+	 * @return true if given row and column position is open and not already on the path
 	 */
 	public boolean isOpen(int row, int col) {
-		return board.isOpen(row, col);
+		if (!board.isOpen(row, col)) {
+			return false;
+		}
+		for (TraceState state = this; state != null; state = state.parent) {
+			if (state.row == row && state.col == col) {
+				return false;
+			}
+		}
+		return true;
 	}
-	
+
 	/** @return path length */
 	public int pathLength() {
-		return path.size();
+		return length;
 	}
-	
+
 	/** @return row of the last point in the path */
 	public int getRow() {
-		return path.get(path.size()-1).x;
+		return row;
 	}
-	
+
 	/** @return column of the last point in the path */
 	public int getCol() {
-		return path.get(path.size()-1).y;
+		return col;
+	}
+
+	/** @return packed index of the last point in the path, row * numCols + col */
+	public int getCell() {
+		return board.cellIndex(row, col);
 	}
-	
+
+	/** @return the state this one was extended from, or null for an initial state */
+	public TraceState getParent() {
+		return parent;
+	}
+
 	/** @return the current CircuitBoard from this state with the path filled in with 'T's */
 	public CircuitBoard getBoard() {
-		return new CircuitBoard(board);
+		CircuitBoard traced = new CircuitBoard(board);
+		for (TraceState state = this; state != null; state = state.parent) {
+			traced.makeTrace(state.row, state.col);
+		}
+		return traced;
 	}
-	
+
 	/** @return list of row, column points that make up the path */
 	public ArrayList<Point> getPath() {
-		return new ArrayList<Point>(path);
-	}
-	
-	/** @return true if path ends adjacent to ending component */
-	public boolean isComplete() {
-		return adjacent(path.get(path.size()-1), board.getEndingPoint());
-	}
-	
-	/**
-	 * @param p1 first Point
-	 * @param p2 second Point
-	 * @return true if p1 and p2 are adjacent, else false
-	 */
-	private boolean adjacent(Point p1, Point p2) {
-		if (p1.x-1 == p2.x && p1.y == p2.y) {
-			return true;
-		}
-		if (p1.x+1 == p2.x && p1.y == p2.y) {
-			return true;
+		Point[] points = new Point[length];
+		for (TraceState state = this; state != null; state = state.parent) {
+			points[state.length - 1] = new Point(state.row, state.col);
 		}
-		if (p1.x == p2.x && p1.y-1 == p2.y) {
-			return true;
+		ArrayList<Point> path = new ArrayList<Point>(length);
+		for (Point p : points) {
+			path.add(p);
 		}
-		if (p1.x == p2.x && p1.y+1 == p2.y) {
-			return true;
+		return path;
+	}
+
+	/** @return packed indices, row * numCols + col, of the points that make up the path */
+	public int[] getPathCells() {
+		int[] cells = new int[length];
+		for (TraceState state = this; state != null; state = state.parent) {
+			cells[state.length - 1] = board.cellIndex(state.row, state.col);
 		}
-		return false;
+		return cells;
 	}
-	
+
+	/** @return true if path ends adjacent to ending component */
+	public boolean isComplete() {
+		int end = board.getEndingCell();
+		int cols = board.numCols();
+		return Math.abs(row - end / cols) + Math.abs(col - end % cols) == 1;
+	}
+
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
 	 */
 	public String toString() {
-		return board.toString();
+		return getBoard().toString();
 	}
 }
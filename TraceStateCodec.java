@@ -0,0 +1,88 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Writes TraceStates for a disk-backed Storage in a compact form: the path
+ * length, the packed index of the first cell, then each later step as one of
+ * the four neighbor directions, two bits a step.
+ *
+ * States read back share a single initial state per first cell, and so a
+ * single copy of the board. Each also shares as much of its path as it has
+ * in common with the state read before it; states are written in search
+ * order, where siblings sit together, so most of each path is shared.
+ *
+ * @author CS221
+ */
+public class TraceStateCodec implements Storage.Codec<TraceState> {
+	private final CircuitBoard board;
+	private final HashMap<Integer, TraceState> roots = new HashMap<Integer, TraceState>(); //initial state per first cell
+	private TraceState[] last = new TraceState[0]; //path of the state read last, by length - 1
+	private int lastLength; //length of the state read last
+
+	/** @param board board the states are searched on */
+	public TraceStateCodec(CircuitBoard board) {
+		this.board = board;
+	}
+
+	public void write(TraceState state, DataOutput out) throws IOException {
+		int length = state.pathLength();
+		int[] cells = new int[length];
+		for (TraceState s = state; s != null; s = s.getParent()) {
+			cells[s.pathLength() - 1] = s.getRow() * board.numCols() + s.getCol();
+		}
+		out.writeInt(length);
+		out.writeInt(cells[0]);
+		int packed = 0;
+		for (int i = 1; i < length; i++) {
+			packed |= direction(cells[i - 1], cells[i]) << (2 * ((i - 1) % 4));
+			if ((i - 1) % 4 == 3 || i == length - 1) {
+				out.writeByte(packed);
+				packed = 0;
+			}
+		}
+	}
+
+	public TraceState read(DataInput in) throws IOException {
+		int length = in.readInt();
+		int first = in.readInt();
+		TraceState state = roots.get(first);
+		if (state == null) {
+			state = new TraceState(board, first / board.numCols(), first % board.numCols());
+			roots.put(first, state);
+		}
+		if (last.length < length) {
+			last = Arrays.copyOf(last, Math.max(length, 2 * last.length));
+		}
+		boolean shared = lastLength > 0 && last[0] == state; //still on the path read last
+		last[0] = state;
+		int packed = 0;
+		for (int i = 1; i < length; i++) {
+			if ((i - 1) % 4 == 0) {
+				packed = in.readUnsignedByte();
+			}
+			int d = (packed >>> (2 * ((i - 1) % 4))) & 3;
+			int row = state.getRow() + DistanceField.DROW[d];
+			int col = state.getCol() + DistanceField.DCOL[d];
+			shared = shared && i < lastLength && last[i].getRow() == row && last[i].getCol() == col;
+			state = shared ? last[i] : new TraceState(state, row, col);
+			last[i] = state;
+		}
+		lastLength = length;
+		return state;
+	}
+
+	/** @return index in DistanceField's neighbor order of the step from cell to next */
+	private int direction(int cell, int next) {
+		int diff = next - cell;
+		if (diff == board.numCols()) {
+			return 0;
+		}
+		if (diff == -board.numCols()) {
+			return 1;
+		}
+		return (diff == -1) ? 2 : 3;
+	}
+}
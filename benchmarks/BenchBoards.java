@@ -0,0 +1,80 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.Random;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Writes the boards the benchmarks run on. Boards are square with cells
+ * closed at random, from a fixed seed so every run sees the same boards.
+ * The components are placed about the center, diagonally apart, so the
+ * number of shortest traces grows with their distance as well as the
+ * board's size. Traces are printed to a stream that discards them.
+ *
+ * @author CS221
+ */
+public class BenchBoards {
+	/** seed for the closed cells, fixed so results are comparable between runs */
+	private static final long SEED = 221;
+
+	private BenchBoards() {
+	}
+
+	/**
+	 * Writes a board in the text format to a temporary file, deleted on exit.
+	 * @param size rows and columns on the board
+	 * @param density chance that each cell other than the components is 'X'
+	 * @param distance Manhattan distance between the components, at most 2 * (size - 1)
+	 * @return the board file
+	 * @throws IOException if the file cannot be written
+	 */
+	public static File write(int size, double density, int distance) throws IOException {
+		distance = Math.max(1, Math.min(distance, 2 * (size - 1)));
+		int down = Math.min(distance / 2, size - 1);
+		int across = distance - down;
+		int startRow = (size - 1 - down) / 2;
+		int startCol = (size - 1 - across) / 2;
+		File file = File.createTempFile("bench", ".txt");
+		file.deleteOnExit();
+		Random random = new Random(SEED);
+		PrintWriter out = new PrintWriter(file);
+		try {
+			out.println(size + " " + size);
+			for (int row = 0; row < size; row++) {
+				StringBuilder line = new StringBuilder(2 * size);
+				for (int col = 0; col < size; col++) {
+					char c = (random.nextDouble() < density) ? 'X' : 'O';
+					if (row == startRow && col == startCol) {
+						c = '1';
+					} else if (row == startRow + down && col == startCol + across) {
+						c = '2';
+					}
+					line.append(c).append(col < size - 1 ? ' ' : "");
+				}
+				out.println(line);
+			}
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	/**
+	 * @param blackhole sink for each write, so the output leading up to it is not optimized away
+	 * @return stream that discards everything written to it
+	 */
+	public static OutputStream discard(final Blackhole blackhole) {
+		return new OutputStream() {
+			public void write(int b) {
+				blackhole.consume(b);
+			}
+
+			public void write(byte[] b, int off, int len) {
+				blackhole.consume(b);
+				blackhole.consume(len);
+			}
+		};
+	}
+}
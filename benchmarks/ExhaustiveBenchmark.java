@@ -0,0 +1,62 @@
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of a full trace, as in TraceBenchmark, for the stack and queue
+ * modes. The queue mode stops at the shortest trace length, but holds every
+ * partial path no longer than that, a whole level at a time, and on a board
+ * with no trace it searches every path; the stack mode walks every path its
+ * bounds cannot rule out. So both grow exponentially with the shortest
+ * length, which on an empty board is the distance between the components.
+ * The defaults stop at 8 cells on a side: an empty 10x10 board at distance
+ * 16 takes queue mode about a second and at distance 20 several seconds,
+ * while 10x10 at density 0.2 has no trace and does not finish. Stack mode
+ * holds one path, so it alone can be run further, e.g. -p mode=-s
+ * -p size=12 -p density=0.0 -p distance=24.
+ *
+ * @author CS221
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExhaustiveBenchmark {
+	@Param({"6", "8"})
+	public int size;
+
+	@Param({"0.0", "0.2", "0.35"})
+	public double density;
+
+	@Param({"8", "16"})
+	public int distance;
+
+	@Param({"-s", "-q"})
+	public String mode;
+
+	private CircuitBoard board;
+
+	@Setup(Level.Trial)
+	public void readBoard() throws Exception {
+		board = new CircuitBoard(BenchBoards.write(size, density, distance).getPath());
+	}
+
+	@Benchmark
+	public long trace(Blackhole blackhole) {
+		return CircuitTracer.printTraces(CircuitTracer.search(board, mode, 1), BenchBoards.discard(blackhole), false);
+	}
+}
@@ -0,0 +1,58 @@
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of reading a board file with the CircuitBoard file constructor,
+ * in the text format and in the binary format, over boards from BenchBoards.
+ *
+ * @author CS221
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+	@Param({"16", "64", "256", "1024"})
+	public int size;
+
+	@Param({"0.0", "0.35"})
+	public double density;
+
+	@Param({"text", "binary"})
+	public String format;
+
+	private String filename;
+
+	@Setup(Level.Trial)
+	public void writeBoard() throws Exception {
+		File text = BenchBoards.write(size, density, size);
+		if (format.equals("binary")) {
+			File binary = File.createTempFile("bench", ".cbd");
+			binary.deleteOnExit();
+			new CircuitBoard(text.getPath()).saveBinary(binary.getPath());
+			filename = binary.getPath();
+		} else {
+			filename = text.getPath();
+		}
+	}
+
+	@Benchmark
+	public CircuitBoard parse() throws Exception {
+		return new CircuitBoard(filename);
+	}
+}
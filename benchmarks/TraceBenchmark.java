@@ -0,0 +1,64 @@
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of a full trace - search, then rendering every trace through
+ * TraceRenderer as CircuitTracer prints it, into a stream that discards the
+ * output - for the search modes that stop at the shortest length, over
+ * boards from BenchBoards. The stack and queue
+ * modes are measured by ExhaustiveBenchmark instead.
+ *
+ * The number of shortest traces grows exponentially with the distance
+ * between the components, so the default distances keep enumeration to well
+ * under a second. Larger distances can be passed with -p for the modes that
+ * only count, e.g. -p mode=-d,-b -p distance=64,512.
+ *
+ * @author CS221
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TraceBenchmark {
+	/** worker threads for parallel queue mode */
+	private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+	@Param({"16", "64", "256", "1024"})
+	public int size;
+
+	@Param({"0.0", "0.2", "0.35"})
+	public double density;
+
+	@Param({"4", "8", "16"})
+	public int distance;
+
+	@Param({"-d", "-b", "-a", "-p", "-u", "-w"})
+	public String mode;
+
+	private CircuitBoard board;
+
+	@Setup(Level.Trial)
+	public void readBoard() throws Exception {
+		board = new CircuitBoard(BenchBoards.write(size, density, distance).getPath());
+	}
+
+	@Benchmark
+	public long trace(Blackhole blackhole) {
+		return CircuitTracer.printTraces(CircuitTracer.search(board, mode, THREADS), BenchBoards.discard(blackhole), false);
+	}
+}
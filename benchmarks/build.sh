@@ -0,0 +1,6 @@
+#!/bin/sh
+# Compiles the benchmarks together with the tracer sources into classes/,
+# with the JMH jars in jmh/, as README describes.
+cd "$(dirname "$0")" || exit 1
+mkdir -p classes
+exec javac -cp "jmh/*" -d classes ../*.java *.java